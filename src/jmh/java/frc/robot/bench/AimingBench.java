@@ -0,0 +1,46 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.SpeakerTargetEstimator;
+import frc.robot.subsystems.shooter.ShotMap;
+
+/**
+ * The speaker aiming math SpeakerTargetEstimator samples every loop, run through the same static
+ * helpers, plus the shot map pitch lookup Aim does with the range. The subsystems' own logging is covered by LoggerBench.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AimingBench {
+    private final Pose3d m_pose = new Pose3d(2.5, 5.5, 0, new Rotation3d(0, 0, Math.PI));
+    private final ShotMap m_shotMap = new ShotMap(
+        new double[] { 1.3, 2.9, 4.5 },
+        new double[] { 0.95, 0.6, 0.45 },
+        new double[] { 5000, 6000, 7500 },
+        new double[] { 0.6, 0.6, 0.6 });
+
+    @Benchmark
+    public double pitchToSpeaker() {
+        return m_shotMap.pitchRads(SpeakerTargetEstimator.rangeToSpeaker(m_pose.getX(), m_pose.getY(), false));
+    }
+
+    @Benchmark
+    public double bearingToSpeaker() {
+        return SpeakerTargetEstimator.bearingToSpeaker(m_pose.getX(), m_pose.getY(), m_pose.getRotation().getZ(), false);
+    }
+
+    @Benchmark
+    public double rangeToSpeaker() {
+        return SpeakerTargetEstimator.rangeToSpeaker(m_pose.getX(), m_pose.getY(), false);
+    }
+}
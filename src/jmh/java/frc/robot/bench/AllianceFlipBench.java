@@ -0,0 +1,65 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.util.AllianceFlipUtil;
+
+/** AllianceFlipUtil.apply overloads, including the DriverStation alliance lookup. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AllianceFlipBench {
+    private double m_x = 2.5;
+    private Translation2d m_translation2d = new Translation2d(2.5, 5.5);
+    private Translation3d m_translation3d = new Translation3d(2.5, 5.5, 2.0);
+    private Rotation2d m_rotation = Rotation2d.fromDegrees(30);
+    private Pose2d m_pose = new Pose2d(2.5, 5.5, Rotation2d.fromDegrees(30));
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+    }
+
+    @Benchmark
+    public double applyDouble() {
+        return AllianceFlipUtil.apply(m_x);
+    }
+
+    @Benchmark
+    public Translation2d applyTranslation2d() {
+        return AllianceFlipUtil.apply(m_translation2d);
+    }
+
+    @Benchmark
+    public Translation3d applyTranslation3d() {
+        return AllianceFlipUtil.apply(m_translation3d);
+    }
+
+    @Benchmark
+    public Rotation2d applyRotation2d() {
+        return AllianceFlipUtil.apply(m_rotation);
+    }
+
+    @Benchmark
+    public Pose2d applyPose2d() {
+        return AllianceFlipUtil.apply(m_pose);
+    }
+
+    @Benchmark
+    public boolean shouldFlip() {
+        return AllianceFlipUtil.shouldFlip();
+    }
+}
@@ -0,0 +1,57 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.util.FaultMonitor;
+
+/**
+ * One evaluation of 48 in-range checks: FaultMonitor's flat pass versus the debounced
+ * Trigger pairs WaltRangeChecker used to build for each check.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FaultMonitorBench {
+    private static final int kChecks = 48;
+
+    private final double[] m_values = new double[kChecks];
+    private final EventLoop m_triggerLoop = new EventLoop();
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+        FaultMonitor.setPeriod(0);
+        for (int i = 0; i < kChecks; i++) {
+            final int idx = i;
+            m_values[i] = 5;
+            FaultMonitor.add("Bench" + i, () -> m_values[idx], 0, 10, 1, false);
+
+            new Trigger(m_triggerLoop, () -> m_values[idx] < 0).debounce(1)
+                .onTrue(Commands.none()).onFalse(Commands.none());
+            new Trigger(m_triggerLoop, () -> m_values[idx] > 10).debounce(1)
+                .onTrue(Commands.none()).onFalse(Commands.none());
+        }
+    }
+
+    @Benchmark
+    public void faultMonitor() {
+        FaultMonitor.periodic();
+    }
+
+    @Benchmark
+    public void debouncedTriggers() {
+        m_triggerLoop.poll();
+    }
+}
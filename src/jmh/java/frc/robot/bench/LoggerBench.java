@@ -0,0 +1,76 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.wpilibj.DataLogManager;
+import frc.util.logging.WaltLogger;
+import frc.util.logging.WaltLogger.*;
+
+/** Producer-side cost of the WaltLogger accept paths called every loop. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LoggerBench {
+    private DoubleLogger m_double;
+    private DoubleLogger m_doubleChangesOnly;
+    private IntLogger m_int;
+    private BooleanLogger m_boolean;
+    private Pose3dLogger m_pose3d;
+
+    private double m_value = 0;
+    private int m_counter = 0;
+    private final Pose3d m_pose = new Pose3d(1.2, 3.4, 0.1, new Rotation3d(0, 0.2, 1.1));
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+        DataLogManager.start(System.getProperty("java.io.tmpdir"));
+        m_double = WaltLogger.logDouble("Bench", "double");
+        m_doubleChangesOnly = WaltLogger.logDouble("Bench", "doubleChangesOnly")
+            .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+        m_int = WaltLogger.logInt("Bench", "int");
+        m_boolean = WaltLogger.logBoolean("Bench", "boolean");
+        m_pose3d = WaltLogger.logPose3d("Bench", "pose3d");
+    }
+
+    @Benchmark
+    public void doubleAccept() {
+        m_double.accept(m_value += 0.001);
+    }
+
+    @Benchmark
+    public void doubleAcceptUnchanged() {
+        m_doubleChangesOnly.accept(1.0);
+    }
+
+    @Benchmark
+    public void intAccept() {
+        m_int.accept(m_counter++);
+    }
+
+    @Benchmark
+    public void booleanAccept() {
+        m_boolean.accept((m_counter++ & 1) == 0);
+    }
+
+    @Benchmark
+    public void pose3dAccept() {
+        m_pose3d.accept(m_pose);
+    }
+
+    @Benchmark
+    public void pose3dAcceptRaw() {
+        m_pose3d.accept(1.2, 3.4, m_value += 0.001, 1, 0, 0, 0);
+    }
+}
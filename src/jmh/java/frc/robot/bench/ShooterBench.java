@@ -0,0 +1,38 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.subsystems.shooter.ShotMap;
+
+/** Shooter.spinUpFinished() polled against simulated TalonFXs, as the superstructure does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShooterBench {
+    private BooleanSupplier m_spinUpFinished;
+
+    @Setup
+    public void setup() {
+        HAL.initialize(500, 0);
+        var shooter = new Shooter(ShotMap.loadDeployed());
+        // a nonzero target, so the check reads the closed loop errors instead of returning early
+        shooter.increaseRpm().initialize();
+        m_spinUpFinished = shooter.spinUpFinished();
+    }
+
+    @Benchmark
+    public boolean spinUpFinished() {
+        return m_spinUpFinished.getAsBoolean();
+    }
+}
@@ -0,0 +1,41 @@
+package frc.robot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import frc.robot.subsystems.shooter.ShotMap;
+
+/**
+ * ShotMap lookups, once with the distance creeping like it does between loops (segment cache hits)
+ * and once jumping around the map (binary search every time).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShotMapBench {
+    private final ShotMap m_map = ShotMap.loadDeployed();
+    private double m_distance = 1.0;
+    private int m_jump = 0;
+
+    @Benchmark
+    public double creepingDistance() {
+        m_distance += 0.002;
+        if (m_distance > m_map.getMaxDistance()) {
+            m_distance = m_map.getMinDistance();
+        }
+        return m_map.pitchRads(m_distance) + m_map.leftRpm(m_distance) + m_map.spinRatio(m_distance);
+    }
+
+    @Benchmark
+    public double jumpingDistance() {
+        m_jump = (m_jump + 7) % 45;
+        double distance = 1.0 + m_jump * 0.1;
+        return m_map.pitchRads(distance) + m_map.leftRpm(distance) + m_map.spinRatio(distance);
+    }
+}
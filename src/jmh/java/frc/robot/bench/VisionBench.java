@@ -0,0 +1,61 @@
+package frc.robot.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.photonvision.targeting.MultiTargetPNPResult;
+import org.photonvision.targeting.PNPResult;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+import org.photonvision.targeting.TargetCorner;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.Vision;
+
+/** Vision.getEstimationStdDevs for a typical multi-tag frame in front of the speaker. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VisionBench {
+    @Param({"1", "2", "4"})
+    public int tagCount;
+
+    private final Pose2d m_estimate = new Pose2d(2.5, 5.5, Rotation2d.fromDegrees(180));
+    private PhotonPipelineResult m_result;
+
+    @Setup
+    public void setup() {
+        // blue speaker and amp side tags
+        int[] ids = {7, 8, 6, 5};
+        var targets = new ArrayList<PhotonTrackedTarget>();
+        var usedIds = new ArrayList<Integer>();
+        for (int i = 0; i < tagCount; i++) {
+            targets.add(new PhotonTrackedTarget(
+                0, 0, 1, 0, ids[i], new Transform3d(), new Transform3d(), 0.1,
+                List.<TargetCorner>of(), List.<TargetCorner>of()));
+            usedIds.add(ids[i]);
+        }
+        var multiTag = new MultiTargetPNPResult(new PNPResult(new Transform3d(), 0.1), usedIds);
+        m_result = new PhotonPipelineResult(20, targets, multiTag);
+    }
+
+    @Benchmark
+    public Optional<Matrix<N3, N1>> estimationStdDevs() {
+        return Vision.getEstimationStdDevs(m_estimate, m_result);
+    }
+}
@@ -0,0 +1,87 @@
+package frc.robot;
+
+import static frc.robot.Constants.FieldK.kTagLayout;
+
+import edu.wpi.first.math.geometry.Pose3d;
+
+/**
+ * {@link Constants.FieldK#kTagLayout} flattened into arrays indexed by fiducial id, built once at
+ * class load. Per-frame vision math reads tag positions and weights from here instead of going
+ * through the layout's Optional lookups.
+ */
+public final class AprilTagTable {
+    private AprilTagTable() {
+    }
+
+    /** Ids go from 1 to this; index 0 is unused */
+    public static final int kMaxId;
+
+    private static final boolean[] kPresent;
+    private static final double[] kX;
+    private static final double[] kY;
+    private static final double[] kZ;
+    private static final double[] kWeight;
+
+    private static final int kBlueSpeakerId = 7;
+    private static final int kRedSpeakerId = 4;
+    private static final Pose3d kBlueSpeakerPose;
+    private static final Pose3d kRedSpeakerPose;
+
+    static {
+        int maxId = 0;
+        for (var tag : kTagLayout.getTags()) {
+            maxId = Math.max(maxId, tag.ID);
+        }
+        kMaxId = maxId;
+        kPresent = new boolean[maxId + 1];
+        kX = new double[maxId + 1];
+        kY = new double[maxId + 1];
+        kZ = new double[maxId + 1];
+        kWeight = new double[maxId + 1];
+        for (var tag : kTagLayout.getTags()) {
+            kPresent[tag.ID] = true;
+            kX[tag.ID] = tag.pose.getX();
+            kY[tag.ID] = tag.pose.getY();
+            kZ[tag.ID] = tag.pose.getZ();
+            kWeight[tag.ID] = tag.ID <= Vision.TAG_WEIGHTS.length ? Vision.TAG_WEIGHTS[tag.ID - 1] : 1;
+        }
+        kBlueSpeakerPose = kTagLayout.getTagPose(kBlueSpeakerId).get();
+        kRedSpeakerPose = kTagLayout.getTagPose(kRedSpeakerId).get();
+    }
+
+    /** @return whether the layout has a tag with this id */
+    public static boolean has(int id) {
+        return id > 0 && id <= kMaxId && kPresent[id];
+    }
+
+    public static double x(int id) {
+        return kX[id];
+    }
+
+    public static double y(int id) {
+        return kY[id];
+    }
+
+    public static double z(int id) {
+        return kZ[id];
+    }
+
+    public static double weight(int id) {
+        return kWeight[id];
+    }
+
+    /** @return floor-plane distance from the tag to (x, y) */
+    public static double distance2d(int id, double x, double y) {
+        return Math.hypot(kX[id] - x, kY[id] - y);
+    }
+
+    /** @return the id of the middle speaker tag for the given alliance */
+    public static int speakerTagId(boolean red) {
+        return red ? kRedSpeakerId : kBlueSpeakerId;
+    }
+
+    /** @return the pose of the middle speaker tag for the given alliance */
+    public static Pose3d speakerTagPose(boolean red) {
+        return red ? kRedSpeakerPose : kBlueSpeakerPose;
+    }
+}
@@ -55,6 +55,16 @@ public class Constants {
 
         public static final Transform3d kRearTagCamLocation = new Transform3d(
             -0.5, 0.5, 0.25, new Rotation3d(0, 0, Units.degreesToRadians(180)));
+
+        /* simulated camera properties, roughly an OV9281 */
+        public static final int kSimResWidth = 1280;
+        public static final int kSimResHeight = 800;
+        public static final double kSimDiagFovDegs = 84;
+        public static final double kSimFps = 30;
+        public static final double kSimAvgLatencyMs = 35;
+        public static final double kSimLatencyStdDevMs = 5;
+        public static final double kSimCalibErrorAvgPx = 0.25;
+        public static final double kSimCalibErrorStdDevPx = 0.08;
     }
 
     public static final class DriveK {
@@ -260,10 +270,13 @@ public class Constants {
         public static final int kLeftId = 14;
 
         public static final double kSpinAmt = 0.7;
+        /** Right over left flywheel speed for velocity-controlled shots */
+        public static final double kVeloSpinRatio = 0.6;
 
         public static final double kSubwooferRpm = 7300;
         public static final double kLobRpm = 4500;
         public static final double kPodiumRpm = 7600;
+        public static final double kFarShotRpm = 6000;
         public static final double kAmpRpm = 750;
         public static final double kTrapRpm = 1400;
 
@@ -356,6 +369,10 @@ public class Constants {
         public static final double kGearRatio = ((5.0 * 5.0 * 4.0) * (61.0 / 24.0));
 
         public static final Measure<Distance> kLength = Inches.of(18);
+        /** Elevation of the shot above the aim's zero */
+        public static final Measure<Angle> kLaunchOffset = Degrees.of(28);
+        /** The pitch request lands about a loop after it is sampled, so Aim leads the range by this much */
+        public static final double kPitchLeadSecs = 0.02;
         // asin((22 - kHeightTilShooter) / kLength)
         public static final Measure<Angle> kStageClearance = Degrees.of(47.097);
         public static final Measure<Angle> kMinAngle = Rotations.of(0);
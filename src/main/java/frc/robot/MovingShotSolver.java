@@ -0,0 +1,124 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.FieldK.SpeakerK;
+import frc.robot.subsystems.Swerve;
+import frc.robot.subsystems.shooter.ShotMap;
+import frc.util.AllianceFlipUtil;
+import frc.util.LoopProfiler;
+import frc.util.logging.WaltLogger;
+import frc.util.logging.WaltLogger.BooleanLogger;
+import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.WaltLogger.Translation2dLogger;
+
+/**
+ * Shot setpoints for shooting while driving.
+ * <p>
+ * A note leaves with the robot's field velocity added to its own, so instead of the speaker we aim
+ * at a virtual target offset by the opposite of that velocity times the note's time of flight.
+ * Time of flight depends on distance and distance depends on the offset, so the two are iterated a
+ * few times; with flight times well under a second this settles almost immediately. The robot pose
+ * is first moved forward by {@link #kReleaseLatencySecs} to where it will be when the note leaves.
+ * <p>
+ * {@link #update()} runs once per loop before the scheduler, and the commands just read the
+ * results, so Aim, Shooter and Swerve all use the same solution every loop. When there is no recent
+ * vision the outputs are NaN and the consumers hold what they had.
+ */
+public class MovingShotSolver {
+    /** From the loop deciding on a shot to the note leaving the shooter */
+    private static final double kReleaseLatencySecs = 0.08;
+    private static final int kIterations = 3;
+
+    private final SpeakerTargetEstimator m_speakerTarget;
+    private final Swerve m_swerve;
+    private final ShotMap m_shotMap;
+    private final LoopProfiler.Section m_timing = LoopProfiler.section("MovingShot/update");
+
+    private boolean m_valid = false;
+    private double m_distance = Double.NaN;
+    private double m_headingRads = Double.NaN;
+    private double m_flightSecs = Double.NaN;
+
+    private final BooleanLogger log_valid = WaltLogger.logBoolean("MovingShot", "valid");
+    private final DoubleLogger log_distance = WaltLogger.logDouble("MovingShot", "effectiveDistance");
+    private final DoubleLogger log_heading = WaltLogger.logDouble("MovingShot", "headingDegs");
+    private final DoubleLogger log_flightSecs = WaltLogger.logDouble("MovingShot", "flightSecs");
+    private final Translation2dLogger log_virtualTarget = WaltLogger.logTranslation2d("MovingShot", "virtualTarget");
+
+    public MovingShotSolver(SpeakerTargetEstimator speakerTarget, Swerve swerve, ShotMap shotMap) {
+        m_speakerTarget = speakerTarget;
+        m_swerve = swerve;
+        m_shotMap = shotMap;
+        if (!shotMap.hasFlightTimes()) {
+            System.out.println("[MOVINGSHOT] shot map has no flight times, leading by a constant note speed guess; "
+                + "regenerate it with ./gradlew solveShots");
+        }
+    }
+
+    /** Solves for this loop. Robot loop only, before the scheduler runs. */
+    public void update() {
+        m_timing.start();
+        m_valid = m_speakerTarget.isValid(Timer.getFPGATimestamp());
+        if (!m_valid) {
+            m_distance = Double.NaN;
+            m_headingRads = Double.NaN;
+            m_flightSecs = Double.NaN;
+            log_valid.accept(false);
+            m_timing.stop();
+            return;
+        }
+
+        // one snapshot, so the pose and speeds come from the same odometry update
+        var state = m_swerve.getState();
+        var pose = state.Pose;
+        var speeds = state.speeds;
+        // chassis speeds are robot relative
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+        double vx = speeds.vxMetersPerSecond * cos - speeds.vyMetersPerSecond * sin;
+        double vy = speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos;
+
+        double x = pose.getX() + vx * kReleaseLatencySecs;
+        double y = pose.getY() + vy * kReleaseLatencySecs;
+        var speaker = AllianceFlipUtil.shouldFlip()
+            ? AllianceFlipUtil.flip(SpeakerK.kBlueCenterOpening) : SpeakerK.kBlueCenterOpening;
+
+        double targetX = speaker.getX();
+        double targetY = speaker.getY();
+        double distance = Math.hypot(targetX - x, targetY - y);
+        double flightSecs = 0;
+        for (int i = 0; i < kIterations; i++) {
+            flightSecs = m_shotMap.flightSecs(distance);
+            targetX = speaker.getX() - vx * flightSecs;
+            targetY = speaker.getY() - vy * flightSecs;
+            distance = Math.hypot(targetX - x, targetY - y);
+        }
+
+        m_distance = distance;
+        m_flightSecs = flightSecs;
+        // back of the robot faces the target
+        m_headingRads = MathUtil.angleModulus(Math.atan2(targetY - y, targetX - x) + Math.PI);
+
+        log_valid.accept(true);
+        log_distance.accept(m_distance);
+        log_heading.accept(Math.toDegrees(m_headingRads));
+        log_flightSecs.accept(m_flightSecs);
+        log_virtualTarget.accept(targetX, targetY);
+        m_timing.stop();
+    }
+
+    public boolean isValid() {
+        return m_valid;
+    }
+
+    /** @return distance to the virtual target for the shot map, or NaN without a solution */
+    public double getEffectiveDistance() {
+        return m_distance;
+    }
+
+    /** @return field heading for the robot, or NaN without a solution */
+    public double getHeadingRads() {
+        return m_headingRads;
+    }
+}
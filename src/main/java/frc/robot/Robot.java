@@ -24,6 +24,7 @@ import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.PowerDistribution;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
@@ -46,9 +47,16 @@ import frc.robot.subsystems.Swerve;
 import frc.robot.subsystems.shooter.Aim;
 import frc.robot.subsystems.shooter.Conveyor;
 import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.subsystems.shooter.ShotMap;
 import frc.robot.subsystems.shooter.Trap;
 import frc.util.AllianceFlipUtil;
+import frc.util.CanBusManager;
+import frc.util.CommandProfiler;
+import frc.util.FaultMonitor;
+import frc.util.FlightRecorder;
+import frc.util.LoopProfiler;
 import frc.util.WaltRangeChecker;
+import frc.util.logging.LoggedTunableNumber;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.BooleanLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
@@ -78,8 +86,11 @@ public class Robot extends TimedRobot {
 	private final Swerve swerve = TunerConstants.drivetrain;
 	/** Object of Vision class */
 	private final Vision vision = new Vision();
-	private final Shooter shooter = new Shooter();
-	private final Aim aim = new Aim();
+	private final ShotMap shotMap = ShotMap.loadDeployed();
+	private final Shooter shooter = new Shooter(shotMap);
+	private final SpeakerTargetEstimator speakerTarget = new SpeakerTargetEstimator(swerve);
+	private final Aim aim = new Aim(speakerTarget, shotMap);
+	private final MovingShotSolver movingShot = new MovingShotSolver(speakerTarget, swerve, shotMap);
 	private final Intake intake = new Intake();
 	private final Conveyor conveyor = new Conveyor();
 	private final Climber climber = new Climber();
@@ -109,29 +120,37 @@ public class Robot extends TimedRobot {
 
 	private final BooleanLogger log_frontCamEstPresent = WaltLogger.logBoolean("Swerve", "frontCamEstPresent");
 
+	/** Includes every subsystem periodic(), which are also timed on their own */
+	private final LoopProfiler.Section m_schedulerTiming = LoopProfiler.section("Robot/scheduler");
+	private final LoopProfiler.Section m_fastTiming = LoopProfiler.section("Superstructure/fastPeriodic");
+	private final LoopProfiler.Section m_visionTiming = LoopProfiler.section("Robot/visionCallback");
+
 	private Command m_autonomousCommand;
 
 	public Robot() {
 		DriverStation.silenceJoystickConnectionWarning(true);
 		PhotonCamera.setVersionCheckEnabled(false);
+		swerve.setSpeakerTargetEstimator(speakerTarget);
 		// disable joystick not found warnings when in sim
 		if (Robot.isSimulation()) {
 			DriverStation.silenceJoystickConnectionWarning(true);
 		}
 		addPeriodic(() -> {
+			m_visionTiming.start();
 			var frontCamEstOpt = vision.getFrontCamPoseEst();
-			boolean frontCamTagsPresent = frontCamEstOpt.hasTarget();
-			boolean frontCamEstPresent = frontCamEstOpt.measOpt().isPresent();
-			log_frontCamEstPresent.accept(frontCamEstPresent);
-			swerve.calculateYawErr(frontCamEstOpt.measOpt(), frontCamTagsPresent);
-			if (frontCamEstPresent) {
-				var frontEst = frontCamEstOpt.measOpt().get();
-				aim.calculatePitchToSpeaker(frontEst);
-				// swerve.addVisionMeasurement(frontEst.estimate().estimatedPose.toPose2d(), frontEst.estimate().timestampSeconds);
-			};
+			log_frontCamEstPresent.accept(frontCamEstOpt.measOpt().isPresent());
+			for (var meas : vision.pollMeasurements()) {
+				if (swerve.addVisionMeasurement3d(meas)) {
+					speakerTarget.addMeasurement(meas);
+				}
+			}
+			m_visionTiming.stop();
 		}, 0.02);
 		miniPcPower = pdp.getCurrent(17) * pdp.getVoltage();
 		WaltRangeChecker.addDoubleChecker("MiniPc", () -> miniPcPower, 10, 70, 1, false);
+		WaltRangeChecker.addDoubleChecker("VisionWorkerAge", vision::getWorkerAgeSecs, 0, 0.5, 0.25, false);
+		// every subsystem on the CANivore has declared its signals by now
+		CanBusManager.apply();
 	}
 
 	private void mapAutonCommands() {
@@ -271,7 +290,16 @@ public class Robot extends TimedRobot {
 
 		manipulator.povLeft().and(manipulator.a().negate()).onTrue(aim.toAngleUntilAt(Degrees.of(15.5))); // TODO unmagify
 
-		driver.rightBumper().whileTrue(shooter.farShot());
+		driver.rightBumper().whileTrue(shooter.mappedShot(() -> {
+			var target = speakerTarget.sample(Timer.getFPGATimestamp());
+			return target.valid() ? target.rangeMeters() : Double.NaN;
+		}));
+
+		// shoot on the move: heading, aim and flywheels all track the moving shot solution
+		driver.x().and(driver.back().negate()).and(driver.start().negate()).whileTrue(Commands.parallel(
+			swerve.faceHeading(() -> -driver.getLeftY(), () -> -driver.getLeftX(), kMaxSpeed, movingShot::getHeadingRads),
+			aim.aimForDistance(movingShot::getEffectiveDistance),
+			shooter.mappedShot(movingShot::getEffectiveDistance)));
 	}
 
 	public void configureTestingBindings() {
@@ -307,8 +335,13 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void robotInit() {
+		FlightRecorder.start(0.00125);
+		CommandProfiler.start();
 		addPeriodic(() -> {
+			m_fastTiming.start();
 			superstructure.fastPeriodic();
+			m_fastTiming.stop();
+			FlightRecorder.sample();
 		}, 0.00125);
 		SmartDashboard.putData(field2d);
 		WaltLogger.logPose3d("FieldPoses", "shotLocation").accept(
@@ -331,11 +364,20 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void robotPeriodic() {
+		LoggedTunableNumber.pollChanges();
+		// before the scheduler, so every shot command this loop reads the same solution
+		movingShot.update();
+		m_schedulerTiming.start();
 		CommandScheduler.getInstance().run();
+		m_schedulerTiming.stop();
 		swerve.logModulePositions();
 		miniPcPower = pdp.getCurrent(17) * pdp.getVoltage();
 		log_miniPcPower.accept(miniPcPower);
 		log_powerAbove10.accept(miniPcPower > 10);
+		FaultMonitor.periodic();
+		CanBusManager.periodic();
+		LoopProfiler.periodic();
+		CommandProfiler.periodic();
 	}
 
 	@Override
@@ -404,6 +446,7 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void simulationPeriodic() {
+		vision.simulationPeriodic(swerve.getState().Pose);
 		getTrajLines();
 		simulateAim();
 	}
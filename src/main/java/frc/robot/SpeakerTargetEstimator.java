@@ -0,0 +1,219 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.AimK;
+import frc.robot.Constants.FieldK.SpeakerK;
+import frc.robot.Vision.VisionMeasurement3d;
+import frc.robot.subsystems.Swerve;
+import frc.util.AllianceFlipUtil;
+
+/**
+ * Where the speaker is relative to the robot, for anything that needs to aim at it.
+ * <p>
+ * Every vision measurement Robot accepts is already fused into the drivetrain's pose estimator at
+ * its capture time, and odometry carries that pose between frames, so range, bearing and elevation
+ * come straight from the live fused pose. Their rates come from the chassis speeds in the same
+ * drivetrain state, so controllers can feed forward or lead the target instead of chasing it.
+ * This also keeps track of how old the newest fused frame is, so callers know when odometry has
+ * been carrying the pose for too long. Callers can {@link #sample(double)} whenever they run and
+ * get a fresh target.
+ */
+public class SpeakerTargetEstimator {
+    /**
+     * One sample of the target. {@link #sample(double)} refills and returns the same instance, so
+     * a sample is only good until the next call. Robot loop only.
+     */
+    public static final class SpeakerTarget {
+        private boolean m_valid = false;
+        private double m_xMeters = 0;
+        private double m_yMeters = 0;
+        private double m_headingRads = 0;
+        private double m_rangeMeters = Double.NaN;
+        private double m_bearingRads = Double.NaN;
+        private double m_elevationRads = Double.NaN;
+        private double m_rangeRateMps = 0;
+        private double m_bearingRateRadps = 0;
+        private double m_elevationRateRadps = 0;
+        private double m_ageSecs = Double.POSITIVE_INFINITY;
+
+        private SpeakerTarget() {
+        }
+
+        /** @return whether a vision measurement was fused recently enough to trust the pose */
+        public boolean valid() {
+            return m_valid;
+        }
+
+        /** @return field x of the fused pose the target was computed from */
+        public double xMeters() {
+            return m_xMeters;
+        }
+
+        /** @return field y of the fused pose the target was computed from */
+        public double yMeters() {
+            return m_yMeters;
+        }
+
+        /** @return heading of the fused pose the target was computed from */
+        public double headingRads() {
+            return m_headingRads;
+        }
+
+        /** @return floor distance from the robot center to the speaker opening, see {@link #rangeToSpeaker} */
+        public double rangeMeters() {
+            return m_rangeMeters;
+        }
+
+        /** @return yaw error between the back of the robot and the speaker, see {@link #bearingToSpeaker} */
+        public double bearingRads() {
+            return m_bearingRads;
+        }
+
+        /** @return angle from the aim pivot up to the speaker opening, see {@link #elevationToSpeaker} */
+        public double elevationRads() {
+            return m_elevationRads;
+        }
+
+        /** @return how fast {@link #rangeMeters()} is changing, negative when closing in */
+        public double rangeRateMps() {
+            return m_rangeRateMps;
+        }
+
+        /**
+         * @return how fast the speaker's direction is sweeping around the robot as it drives, so
+         * turning at this rate holds {@link #bearingRads()} steady
+         */
+        public double bearingRateRadps() {
+            return m_bearingRateRadps;
+        }
+
+        /** @return how fast {@link #elevationRads()} is changing */
+        public double elevationRateRadps() {
+            return m_elevationRateRadps;
+        }
+
+        /**
+         * @param leadSecs how far ahead to look
+         * @return {@link #rangeMeters()} extrapolated along {@link #rangeRateMps()}
+         */
+        public double rangeMetersIn(double leadSecs) {
+            return m_rangeMeters + m_rangeRateMps * leadSecs;
+        }
+
+        /** @return time since the newest fused frame was captured */
+        public double ageSecs() {
+            return m_ageSecs;
+        }
+    }
+
+    /** How long odometry alone is trusted to carry the target */
+    private static final double kMaxPredictSecs = 0.5;
+    private static final Translation3d kBlueSpeaker = SpeakerK.kBlueCenterOpening;
+    private static final Translation3d kRedSpeaker = AllianceFlipUtil.flip(SpeakerK.kBlueCenterOpening);
+    /** Height of the speaker opening above the aim pivot */
+    private static final double kPivotToSpeakerZ = SpeakerK.kBlueCenterOpening.getZ() - AimK.kOriginToPivot.getZ();
+
+    private final Swerve m_swerve;
+    private final SpeakerTarget m_target = new SpeakerTarget();
+
+    private double m_lastCaptureSecs = Double.NEGATIVE_INFINITY;
+    private long m_measurementCount = 0;
+
+    public SpeakerTargetEstimator(Swerve swerve) {
+        m_swerve = swerve;
+    }
+
+    /**
+     * Notes a measurement the drivetrain just fused. The pose itself comes from the drivetrain, so
+     * only the capture time is kept. Robot loop only.
+     */
+    public void addMeasurement(VisionMeasurement3d meas) {
+        m_lastCaptureSecs = Math.max(m_lastCaptureSecs, meas.estimate().timestampSeconds);
+        m_measurementCount++;
+    }
+
+    /** @return how many measurements have been fused, so callers can tell when a new one lands */
+    public long getMeasurementCount() {
+        return m_measurementCount;
+    }
+
+    /** @return whether a measurement was fused recently enough for the drivetrain's pose to be trusted */
+    public boolean isValid(double nowSecs) {
+        return nowSecs - m_lastCaptureSecs <= kMaxPredictSecs;
+    }
+
+    /**
+     * Samples the speaker target and its rates from one snapshot of the drivetrain state. Does not
+     * allocate.
+     * @param nowSecs FPGA time, usually {@link Timer#getFPGATimestamp()}
+     * @return the shared sample, refilled
+     */
+    public SpeakerTarget sample(double nowSecs) {
+        var state = m_swerve.getState();
+        var pose = state.Pose;
+        var speeds = state.speeds;
+        boolean red = AllianceFlipUtil.shouldFlip();
+        var speaker = red ? kRedSpeaker : kBlueSpeaker;
+        var target = m_target;
+        target.m_xMeters = pose.getX();
+        target.m_yMeters = pose.getY();
+        target.m_headingRads = pose.getRotation().getRadians();
+
+        double dx = speaker.getX() - target.m_xMeters;
+        double dy = speaker.getY() - target.m_yMeters;
+        double range = Math.hypot(dx, dy);
+        target.m_rangeMeters = range;
+        target.m_bearingRads = bearingToSpeaker(target.m_xMeters, target.m_yMeters, target.m_headingRads, red);
+        target.m_elevationRads = elevationToSpeaker(range);
+
+        // chassis speeds are robot relative, the speaker offset is field relative
+        double cos = Math.cos(target.m_headingRads);
+        double sin = Math.sin(target.m_headingRads);
+        double vx = speeds.vxMetersPerSecond * cos - speeds.vyMetersPerSecond * sin;
+        double vy = speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos;
+        if (range > 1e-6) {
+            target.m_rangeRateMps = -(dx * vx + dy * vy) / range;
+            target.m_bearingRateRadps = (dy * vx - dx * vy) / (range * range);
+        } else {
+            target.m_rangeRateMps = 0;
+            target.m_bearingRateRadps = 0;
+        }
+        target.m_elevationRateRadps = -kPivotToSpeakerZ * target.m_rangeRateMps
+            / (kPivotToSpeakerZ * kPivotToSpeakerZ + range * range);
+
+        target.m_ageSecs = nowSecs - m_lastCaptureSecs;
+        target.m_valid = target.m_ageSecs <= kMaxPredictSecs;
+        return target;
+    }
+
+    /**
+     * Pure, so log replay and benchmarks can drive it without a drivetrain.
+     * @return floor distance from a robot at (x, y) to the speaker opening, in meters
+     */
+    public static double rangeToSpeaker(double xMeters, double yMeters, boolean red) {
+        var speaker = red ? kRedSpeaker : kBlueSpeaker;
+        return Math.hypot(speaker.getX() - xMeters, speaker.getY() - yMeters);
+    }
+
+    /**
+     * Pure, so log replay and benchmarks can drive it without a drivetrain.
+     * @param rangeMeters floor distance to the speaker, see {@link #rangeToSpeaker}
+     * @return angle from the aim pivot up to the speaker opening, in radians
+     */
+    public static double elevationToSpeaker(double rangeMeters) {
+        return Math.atan2(kPivotToSpeakerZ, rangeMeters);
+    }
+
+    /**
+     * Yaw error between the back of the robot and the speaker center. Pure, so log replay and
+     * benchmarks can drive it without a drivetrain.
+     * @return yaw error in radians, wrapped to [-pi, pi]
+     */
+    public static double bearingToSpeaker(double xMeters, double yMeters, double headingRads, boolean red) {
+        var speaker = red ? kRedSpeaker : kBlueSpeaker;
+        double desiredYaw = Math.atan2(speaker.getY() - yMeters, speaker.getX() - xMeters);
+        return MathUtil.angleModulus((desiredYaw - headingRads) - Math.PI);
+    }
+}
@@ -4,6 +4,9 @@ import org.photonvision.PhotonCamera;
 import org.photonvision.PhotonPoseEstimator;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.simulation.PhotonCameraSim;
+import org.photonvision.simulation.SimCameraProperties;
+import org.photonvision.simulation.VisionSystemSim;
 import org.photonvision.targeting.PhotonPipelineResult;
 import org.photonvision.targeting.PhotonTrackedTarget;
 
@@ -11,29 +14,43 @@ import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.util.WPIUtilJNI;
 import frc.robot.Constants.FieldK;
+import frc.robot.Constants.VisionK;
 import frc.util.AllianceFlipUtil;
+import frc.util.AsyncConsole;
+import frc.util.LoopProfiler;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.WaltLogger.IntLogger;
 import frc.util.logging.WaltLogger.Pose3dLogger;
 import frc.util.logging.WaltLogger.Transform3dLogger;
 
 import static frc.robot.Constants.FieldK.kTagLayout;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Supplier;
 
 public class Vision {
 
     public static final Matrix<N3, N1> kSingleTagStdDevs = VecBuilder.fill(1.5, 1.5, 6.24);
     public static final Matrix<N3, N1> kMultipleTagStdDevs = VecBuilder.fill(0.5, 0.5, 6.24);
+    private static final Matrix<N3, N1> kUntrustedStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
 
     public static final double kMaxPoseHeight = 0.405;
     public static final double kMaxPoseAngle = 0.3;
@@ -54,6 +71,20 @@ public class Vision {
     public static final record VisionMeasurement3d (EstimatedRobotPose estimate, Matrix<N3, N1> stdDevs) {}
     /** Contains a boolean signififying whether the camera has a target and an Optional<VisionMeasurement3d> */
     public static final record VisMeas3dEx (boolean hasTarget, Optional<VisionMeasurement3d> measOpt) {}
+    /** How far to trust one camera's estimates before distance scaling, see {@link #getEstimationStdDevs} */
+    public static final record StdDevModel (Matrix<N3, N1> singleTag, Matrix<N3, N1> multiTag) {}
+    /** What the vision worker last produced for a camera; {@code seq} goes up by one per processed frame */
+    private static final record FrameSnapshot (long seq, PhotonPipelineResult result, VisMeas3dEx meas) {}
+
+    public static final StdDevModel kFrontCamStdDevs = new StdDevModel(kSingleTagStdDevs, kMultipleTagStdDevs);
+    /** ShooterCam sees the speaker tags from further away and lower down, trusted less until tuned */
+    public static final StdDevModel kShooterCamStdDevs = new StdDevModel(
+        VecBuilder.fill(2.0, 2.0, 8.0), VecBuilder.fill(0.75, 0.75, 8.0));
+
+    /** Upper bound on how long the worker sleeps if no NT frame notification arrives */
+    private static final long kWorkerIdleParkNanos = 20_000_000;
+    private static final Comparator<VisionMeasurement3d> kByCaptureTime =
+        Comparator.comparingDouble((meas) -> meas.estimate().timestampSeconds);
     
     // private final Matrix<N3, N1> kDefaultStdDevs = VecBuilder.fill(0.9, 0.9, 0.9);
 
@@ -63,18 +94,161 @@ public class Vision {
     private final Transform3d m_frontCam_robotToCam = new Transform3d(
         Units.inchesToMeters(-9.095), Units.inchesToMeters(-11.212), Units.inchesToMeters(10.739), 
         new Rotation3d(Units.degreesToRadians(180), Units.degreesToRadians(0 - 17.8), Units.degreesToRadians(180 - 20)));
-    public final PhotonPoseEstimator m_frontCam_poseEstimator =     
-        new PhotonPoseEstimator(kTagLayout, PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, m_frontCam, m_frontCam_robotToCam);
+
+    /**
+     * One camera, its pose estimator and the worker's latest output for it. Everything except
+     * {@link #m_snapshot} belongs to the vision worker thread.
+     */
+    private final class CameraPipeline {
+        private final PhotonCamera m_camera;
+        private final PhotonPoseEstimator m_estimator;
+        private final StdDevModel m_stdDevModel;
+        private final Pose3dLogger log_rawEstimate;
+        private final Pose3dLogger log_filteredEstimate;
+
+        /** Only used for its last change time, PhotonCamera decodes the frame itself */
+        private final RawSubscriber m_frameSub;
+        private long m_lastChange = -1;
+        private double m_lastTimestamp = Double.NaN;
+        private long m_seq = 0;
+        /** Written only by the worker; the robot loop just reads the reference */
+        private volatile FrameSnapshot m_snapshot =
+            new FrameSnapshot(0, new PhotonPipelineResult(), new VisMeas3dEx(false, Optional.empty()));
+
+        private CameraPipeline(PhotonCamera camera, Transform3d robotToCam, StdDevModel stdDevModel, String logName) {
+            m_camera = camera;
+            m_estimator = new PhotonPoseEstimator(kTagLayout, PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR, camera, robotToCam);
+            m_estimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+            m_stdDevModel = stdDevModel;
+            log_rawEstimate = WaltLogger.logPose3d("Vision", logName + "RawEstimate");
+            log_filteredEstimate = WaltLogger.logPose3d("Vision", logName + "FilteredEstimate");
+
+            // PhotonCamera publishes each frame as one rawBytes update, so use that to wake the worker
+            // as soon as a frame lands instead of on the next loop
+            var inst = NetworkTableInstance.getDefault();
+            var frames = inst.getTable("photonvision").getSubTable(camera.getName()).getRawTopic("rawBytes");
+            m_frameSub = frames.subscribe("rawBytes", new byte[] {});
+            inst.addListener(m_frameSub, EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+                (event) -> LockSupport.unpark(m_worker));
+        }
+
+        /** Processes the camera's latest frame if it has not been seen yet. Vision worker only. */
+        private void poll() {
+            // decoding a frame is the expensive part, so don't even do that for one we've seen
+            long lastChange = m_frameSub.getLastChange();
+            if (lastChange == m_lastChange) return;
+            m_lastChange = lastChange;
+
+            var result = m_camera.getLatestResult();
+            double timestamp = result.getTimestampSeconds();
+            if (timestamp == m_lastTimestamp) return;
+            m_lastTimestamp = timestamp;
+
+            var meas = estimate(result);
+            m_snapshot = new FrameSnapshot(++m_seq, result, meas);
+            if (meas.measOpt().isPresent()) {
+                m_measurements.add(meas.measOpt().get());
+            }
+        }
+
+        private VisMeas3dEx estimate(PhotonPipelineResult result) {
+            var estimateOpt = m_estimator.update(result);
+            // if there is no estimate, return a VisMeas3dEx with an empty VisionMeasurement3d
+            if (estimateOpt.isEmpty()) return new VisMeas3dEx(result.hasTargets(), Optional.empty());
+            
+            // beyond above point there must be an estimate in estimateOpt
+
+            log_rawEstimate.accept(estimateOpt.get().estimatedPose); // LOGGING
+            // if estimate not in field or beneath the floor bin it
+            if (isPlausible(estimateOpt.get().estimatedPose)) {
+                var filtered = estimateOpt.get();
+                var stdDevsOpt = getEstimationStdDevs(filtered.estimatedPose.toPose2d(), result, m_stdDevModel);
+                if (stdDevsOpt.isEmpty()) {
+                    return new VisMeas3dEx(true, Optional.empty());
+                }
+                // if stdDevs is empty, it cannot get past the above lines
+                var stdDevs = stdDevsOpt.get();
+                log_filteredEstimate.accept(filtered.estimatedPose); // LOGGING
+                return new VisMeas3dEx(true, Optional.of(new VisionMeasurement3d(filtered, stdDevs)));
+            }
+
+            return new VisMeas3dEx(false, Optional.empty());
+        }
+    }
+
+    private final Thread m_worker = new Thread(this::workerLoop, "VisionWorker");
+    /** Measurements from every camera, filled by the worker and drained by the robot loop */
+    private final ConcurrentLinkedQueue<VisionMeasurement3d> m_measurements = new ConcurrentLinkedQueue<>();
+    private final CameraPipeline m_frontCamPipeline =
+        new CameraPipeline(m_frontCam, m_frontCam_robotToCam, kFrontCamStdDevs, "frontCam");
+    private final CameraPipeline m_shooterCamPipeline =
+        new CameraPipeline(m_shooterCam, VisionK.kRearTagCamLocation, kShooterCamStdDevs, "shooterCam");
+    private final CameraPipeline[] m_pipelines = { m_frontCamPipeline, m_shooterCamPipeline };
+
+    /** Robot loop only */
+    private long m_frontCamConsumedSeq = 0;
+    private long m_shooterDataSeq = -1;
+    private Optional<List<VisionMeasurement2d>> m_shooterData = Optional.empty();
+    private long m_speakerTargetSeq = -1;
+    private int m_speakerTargetId = -1;
+    private Optional<PhotonMeasurement> m_speakerTarget = Optional.empty();
+    private final ArrayList<VisionMeasurement3d> m_drained = new ArrayList<>();
+
+    /** When the worker last finished a pass over the cameras, in the DataLog time base */
+    private volatile long m_workerHeartbeatUs = WPIUtilJNI.now();
+    /** Frames the worker failed to process; only the worker writes it */
+    private volatile int m_workerErrors = 0;
+    private final AsyncConsole.Channel m_workerErrorPrint = AsyncConsole.channel(1.0);
+
+    /** Only exists in simulation */
+    private final VisionSystemSim m_visionSim;
+    private final LoopProfiler.Section m_simTiming = LoopProfiler.section("Vision/sim");
 
     private final Pose3dLogger log_frontCamOnRobot = WaltLogger.logPose3d("Vision", "frontCamOffset");
     private final DoubleLogger log_shooterYaw = WaltLogger.logDouble("Vision", "shooterYaw");
     private final Transform3dLogger log_speakerTag = WaltLogger.logTransform3d("Vision", "speakerTag");
-    private final Pose3dLogger log_frontCamRawEstimate = WaltLogger.logPose3d("Vision", "frontCamRawEstimate");
-    private final Pose3dLogger log_frontCamFilteredEstimate = WaltLogger.logPose3d("Vision", "frontCamFilteredEstimate");
+    private final DoubleLogger log_workerAgeMs = WaltLogger.logDouble("Vision", "workerAgeMs");
+    private final IntLogger log_workerErrors = WaltLogger.logInt("Vision", "workerErrors")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
 
     public Vision() {
-        m_frontCam_poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
         log_frontCamOnRobot.accept(new Pose3d().plus(m_frontCam_robotToCam));
+        if (Robot.isSimulation()) {
+            m_visionSim = new VisionSystemSim("Vision");
+            m_visionSim.addAprilTags(kTagLayout);
+            m_visionSim.addCamera(makeCameraSim(m_frontCam), m_frontCam_robotToCam);
+            m_visionSim.addCamera(makeCameraSim(m_shooterCam), VisionK.kRearTagCamLocation);
+        } else {
+            m_visionSim = null;
+        }
+        m_worker.setDaemon(true);
+        m_worker.start();
+    }
+
+    private static PhotonCameraSim makeCameraSim(PhotonCamera camera) {
+        var props = new SimCameraProperties();
+        props.setCalibration(VisionK.kSimResWidth, VisionK.kSimResHeight, Rotation2d.fromDegrees(VisionK.kSimDiagFovDegs));
+        props.setCalibError(VisionK.kSimCalibErrorAvgPx, VisionK.kSimCalibErrorStdDevPx);
+        props.setFPS(VisionK.kSimFps);
+        props.setAvgLatencyMs(VisionK.kSimAvgLatencyMs);
+        props.setLatencyStdDevMs(VisionK.kSimLatencyStdDevMs);
+        var cameraSim = new PhotonCameraSim(camera, props);
+        // headless, nobody is watching the streams
+        cameraSim.enableRawStream(false);
+        cameraSim.enableProcessedStream(false);
+        cameraSim.enableDrawWireframe(false);
+        return cameraSim;
+    }
+
+    /**
+     * Renders what both cameras would see from the simulated robot pose; the frames go out over NT
+     * just like a coprocessor's would, so the rest of Vision runs unchanged.
+     * @param robotPose where the simulated drivetrain thinks it is
+     */
+    public void simulationPeriodic(Pose2d robotPose) {
+        m_simTiming.start();
+        m_visionSim.update(robotPose);
+        m_simTiming.stop();
     }
 
     /**
@@ -84,21 +258,34 @@ public class Vision {
      *
      * @param estimatedPose The estimated pose to guess standard deviations for.
      */
-    public Optional<Matrix<N3, N1>> getEstimationStdDevs(
+    public static Optional<Matrix<N3, N1>> getEstimationStdDevs(
         Pose2d estimatedPose, PhotonPipelineResult pipelineResult) {
-        var estStdDevs = kSingleTagStdDevs;
+        return getEstimationStdDevs(estimatedPose, pipelineResult, kFrontCamStdDevs);
+    }
+
+    /** Same as {@link #getEstimationStdDevs(Pose2d, PhotonPipelineResult)}, for a given camera's model */
+    public static Optional<Matrix<N3, N1>> getEstimationStdDevs(
+        Pose2d estimatedPose, PhotonPipelineResult pipelineResult, StdDevModel model) {
+        var estStdDevs = model.singleTag();
         var usedIds = pipelineResult.getMultiTagResult().fiducialIDsUsed;
         int numTags = usedIds.size();
+        // ids are small, so a bitmask replaces a list scan per target
+        long usedMask = 0;
+        for (int i = 0; i < numTags; i++) {
+            int id = usedIds.get(i);
+            if (AprilTagTable.has(id)) usedMask |= 1L << id;
+        }
         var targets = pipelineResult.getTargets();
+        double estX = estimatedPose.getX();
+        double estY = estimatedPose.getY();
         double avgDist = 0;
         double avgWeight = 0;
-        for (var tgt : targets) {
-            if (!usedIds.contains(tgt.getFiducialId())) { continue; } // skip tags not in layout
-            var tagPose = kTagLayout.getTagPose(tgt.getFiducialId());
-            if (tagPose.isEmpty()) continue;
-            avgDist +=
-                tagPose.get().toPose2d().getTranslation().getDistance(estimatedPose.getTranslation());
-            avgWeight += TAG_WEIGHTS[tgt.getFiducialId() - 1];
+        for (int i = 0; i < targets.size(); i++) {
+            int id = targets.get(i).getFiducialId();
+            // skip tags not used for the estimate or not in layout
+            if (!AprilTagTable.has(id) || (usedMask & (1L << id)) == 0) continue;
+            avgDist += AprilTagTable.distance2d(id, estX, estY);
+            avgWeight += AprilTagTable.weight(id);
         }
         if (numTags == 0) return Optional.of(estStdDevs);
 
@@ -108,10 +295,10 @@ public class Vision {
         avgWeight /= numTags;
 
         // Decrease std devs if multiple targets are visible
-        if (numTags > 1) estStdDevs = kMultipleTagStdDevs;
+        if (numTags > 1) estStdDevs = model.multiTag();
         // Increase std devs based on (average) distance
         if (numTags == 1 && avgDist > 4)
-        estStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        estStdDevs = kUntrustedStdDevs;
         else estStdDevs = estStdDevs.times(1 + (avgDist * avgDist / 30));
 
         estStdDevs = estStdDevs.times(avgWeight);
@@ -120,42 +307,83 @@ public class Vision {
     }
 
     public static int getMiddleSpeakerId() {
-        boolean red = AllianceFlipUtil.shouldFlip();
-        return red ? 4 : 7;
+        return AprilTagTable.speakerTagId(AllianceFlipUtil.shouldFlip());
     }
 
     public static Pose3d getMiddleSpeakerTagPose() {
-        return kTagLayout.getTagPose(getMiddleSpeakerId()).get();
+        return AprilTagTable.speakerTagPose(AllianceFlipUtil.shouldFlip());
     }
 
+    /**
+     * Lock-free read of what the vision worker last produced for FrontCam. The measurement is only
+     * handed out once; later calls before the next frame return just whether the camera still sees tags.
+     */
     public VisMeas3dEx getFrontCamPoseEst() {
-        var result = m_frontCam.getLatestResult();
-        var estimateOpt = m_frontCam_poseEstimator.update();
-        // if there is no estimate, return a VisMeas3dEx with an empty VisionMeasurement3d
-        if (estimateOpt.isEmpty()) return new VisMeas3dEx(result.hasTargets(), Optional.empty());
-        
-        // beyond above point there must be an estimate in estimateOpt
-
-        log_frontCamRawEstimate.accept(estimateOpt.get().estimatedPose); // LOGGING
-        // if estimate not in field or beneath the floor bin it
-        if (FieldK.inField(estimateOpt.get().estimatedPose) && estimateOpt.get().estimatedPose.getZ() >= -0.2) {
-            var filtered = estimateOpt.get();
-            var stdDevsOpt = getEstimationStdDevs(filtered.estimatedPose.toPose2d(), result);
-            if (stdDevsOpt.isEmpty()) {
-                return new VisMeas3dEx(true, Optional.empty());
+        var snapshot = m_frontCamPipeline.m_snapshot;
+        if (snapshot.seq() == m_frontCamConsumedSeq) {
+            return new VisMeas3dEx(snapshot.meas().hasTarget(), Optional.empty());
+        }
+        m_frontCamConsumedSeq = snapshot.seq();
+        return snapshot.meas();
+    }
+
+    /**
+     * Every measurement any camera produced since the last call, oldest capture first, so they can
+     * go into the pose estimator as one stream. Robot loop only; the list is reused by the next call.
+     */
+    public List<VisionMeasurement3d> pollMeasurements() {
+        log_workerAgeMs.accept(getWorkerAgeSecs() * 1000);
+        log_workerErrors.accept(m_workerErrors);
+        m_drained.clear();
+        VisionMeasurement3d meas;
+        while ((meas = m_measurements.poll()) != null) {
+            m_drained.add(meas);
+        }
+        m_drained.sort(kByCaptureTime);
+        return m_drained;
+    }
+
+    /**
+     * How long ago the worker last finished a pass over the cameras. A healthy worker passes at
+     * least every {@link #kWorkerIdleParkNanos}, so anything much longer means it is stuck.
+     */
+    public double getWorkerAgeSecs() {
+        return (WPIUtilJNI.now() - m_workerHeartbeatUs) / 1e6;
+    }
+
+    private void workerLoop() {
+        while (true) {
+            for (var pipeline : m_pipelines) {
+                // one bad frame must not kill the thread, the camera's next frame is a fresh start
+                try {
+                    pipeline.poll();
+                } catch (Throwable t) {
+                    m_workerErrors++;
+                    m_workerErrorPrint.print("[VISION] " + pipeline.m_camera.getName() + " frame failed: " + t);
+                }
             }
-            // if stdDevs is empty, it cannot get past the above lines
-            var stdDevs = stdDevsOpt.get();
-            log_frontCamFilteredEstimate.accept(filtered.estimatedPose); // LOGGING
-            return new VisMeas3dEx(true, Optional.of(new VisionMeasurement3d(filtered, stdDevs)));
+            m_workerHeartbeatUs = WPIUtilJNI.now();
+            LockSupport.parkNanos(kWorkerIdleParkNanos);
         }
+    }
 
-        return new VisMeas3dEx(false, Optional.empty());
+    /** @return whether a raw estimate is inside the field and not beneath the floor */
+    public static boolean isPlausible(Pose3d estimate) {
+        return FieldK.inField(estimate) && estimate.getZ() >= -0.2;
     }
 
+    /**
+     * All of these read the one ShooterCam frame the worker already decoded, and only redo their
+     * work when the worker has published a newer one.
+     */
     public Supplier<Optional<List<VisionMeasurement2d>>> shooterDataSupplier() {
         return () -> {
-            var result = m_shooterCam.getLatestResult();
+            var snapshot = m_shooterCamPipeline.m_snapshot;
+            if (snapshot.seq() == m_shooterDataSeq) return m_shooterData;
+            m_shooterDataSeq = snapshot.seq();
+
+            var result = snapshot.result();
+            m_shooterData = Optional.empty();
             if (result.hasTargets()) {
                 var targets = result.getTargets();
                 var measurements = new ArrayList<VisionMeasurement2d>();
@@ -164,26 +392,35 @@ public class Vision {
                     measurements.add(new VisionMeasurement2d(t.getFiducialId(), t.getYaw(), t.getPitch(), t.getArea()));
                 }
 
-                return Optional.of(measurements);
+                // shared between callers, so nobody gets to modify it
+                m_shooterData = Optional.of(List.copyOf(measurements));
             }
-            return Optional.empty();
+            return m_shooterData;
         };
     }
 
     public Supplier<Optional<PhotonMeasurement>> speakerTargetSupplier() {
         return () -> {
-            var result = m_shooterCam.getLatestResult();
+            var snapshot = m_shooterCamPipeline.m_snapshot;
+            int speakerId = getMiddleSpeakerId();
+            if (snapshot.seq() == m_speakerTargetSeq && speakerId == m_speakerTargetId) return m_speakerTarget;
+            m_speakerTargetSeq = snapshot.seq();
+            m_speakerTargetId = speakerId;
+
+            var result = snapshot.result();
+            m_speakerTarget = Optional.empty();
             if (result.hasTargets()) {
                 for (var target : result.targets) {
-                    if(target.getFiducialId() == getMiddleSpeakerId()) {
+                    if(target.getFiducialId() == speakerId) {
                         log_shooterYaw.accept(target.getYaw());
                         log_speakerTag.accept(target.getBestCameraToTarget());
                         var msmt = new PhotonMeasurement(target, result.getLatencyMillis());
-                        return Optional.of(msmt);
+                        m_speakerTarget = Optional.of(msmt);
+                        break;
                     }
                 }
             }
-            return Optional.empty();
+            return m_speakerTarget;
         };
     }
 
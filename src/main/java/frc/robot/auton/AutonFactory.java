@@ -11,6 +11,7 @@ import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.subsystems.Swerve;
 import frc.robot.subsystems.shooter.Aim;
 import frc.robot.subsystems.shooter.Shooter;
+import frc.util.CommandDoodads;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.IntLogger;
 import frc.robot.subsystems.Superstructure;
@@ -55,16 +56,10 @@ public final class AutonFactory {
 		return RobotModeTriggers.autonomous().negate();
 	}
 
-	private static Command printLater(Supplier<String> stringSup) {
-		return defer(() -> {
-			return print(stringSup.get());
-		}, Set.of());
-	}
-
 	private static Command logTimer(String epochName, Supplier<Timer> timerSup) {
 		return defer(() -> {
 			var timer = timerSup.get();
-			return printLater(() -> epochName + " at " + timer.get() + " s");
+			return CommandDoodads.printLater(() -> epochName + " at " + timer.get() + " s");
 		}, Set.of());
 	}
 
@@ -102,7 +97,7 @@ public final class AutonFactory {
 				auton
 			),
 			runOnce(() -> m_autonTimer.stop()),
-			printLater(() -> "Auton Complete in " + m_autonTimer.get() + " seconds")
+			CommandDoodads.printLater(() -> "Auton Complete in " + m_autonTimer.get() + " seconds")
 		).withName("TheAutonWrapper");
 	}
 
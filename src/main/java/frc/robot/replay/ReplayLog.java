@@ -0,0 +1,259 @@
+package frc.robot.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.struct.Pose2dStruct;
+import edu.wpi.first.math.geometry.struct.Pose3dStruct;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+/**
+ * The parts of a {@code .wpilog} file that replay cares about, loaded into flat per-entry columns.
+ * Only the requested entries are kept, so reading an hour-long match log stays cheap.
+ * <p>
+ * Entries are looked up by their WaltLogger name ("Robot/Aim/desiredPitch"). Samples that were
+ * published to NT instead of written directly live under "NT:/Robot/..." and are merged in.
+ */
+public final class ReplayLog {
+    private static final Pose3dStruct kPose3dStruct = new Pose3dStruct();
+    private static final Pose2dStruct kPose2dStruct = new Pose2dStruct();
+    private static final String kNtPrefix = "NT:/";
+
+    /** Time-ordered samples of a double, integer or boolean (0/1) entry */
+    public static final class Series {
+        private long[] m_timestamps = new long[256];
+        private double[] m_values = new double[256];
+        private int m_size = 0;
+
+        private void add(long timestampUs, double value) {
+            if (m_size == m_timestamps.length) {
+                m_timestamps = Arrays.copyOf(m_timestamps, m_size * 2);
+                m_values = Arrays.copyOf(m_values, m_size * 2);
+            }
+            m_timestamps[m_size] = timestampUs;
+            m_values[m_size] = value;
+            m_size++;
+        }
+
+        public int size() {
+            return m_size;
+        }
+
+        public long timestampAt(int i) {
+            return m_timestamps[i];
+        }
+
+        public double valueAt(int i) {
+            return m_values[i];
+        }
+
+        public boolean booleanAt(int i) {
+            return m_values[i] != 0;
+        }
+
+        /** @return index of the first sample at or after the timestamp, or {@link #size()} if none */
+        public int firstAtOrAfter(long timestampUs) {
+            int idx = Arrays.binarySearch(m_timestamps, 0, m_size, timestampUs);
+            if (idx < 0) {
+                return -idx - 1;
+            }
+            while (idx > 0 && m_timestamps[idx - 1] == timestampUs) {
+                idx--;
+            }
+            return idx;
+        }
+    }
+
+    /** Time-ordered samples of a {@code struct:Pose3d} or {@code struct:Pose2d} entry, as 3d poses */
+    public static final class PoseSeries {
+        private long[] m_timestamps = new long[256];
+        private Pose3d[] m_poses = new Pose3d[256];
+        private int m_size = 0;
+
+        private void add(long timestampUs, Pose3d pose) {
+            if (m_size == m_timestamps.length) {
+                m_timestamps = Arrays.copyOf(m_timestamps, m_size * 2);
+                m_poses = Arrays.copyOf(m_poses, m_size * 2);
+            }
+            m_timestamps[m_size] = timestampUs;
+            m_poses[m_size] = pose;
+            m_size++;
+        }
+
+        public int size() {
+            return m_size;
+        }
+
+        public long timestampAt(int i) {
+            return m_timestamps[i];
+        }
+
+        public Pose3d poseAt(int i) {
+            return m_poses[i];
+        }
+    }
+
+    private final Map<String, Series> m_series = new HashMap<>();
+    private final Map<String, PoseSeries> m_poses = new HashMap<>();
+    private long m_startUs = Long.MAX_VALUE;
+    private long m_endUs = Long.MIN_VALUE;
+    private long m_recordCount = 0;
+
+    private ReplayLog() {
+    }
+
+    /**
+     * Reads a log file, keeping only the named entries.
+     * @param path path to the {@code .wpilog}
+     * @param names WaltLogger entry names to keep, without the "NT:/" prefix
+     */
+    public static ReplayLog read(String path, Set<String> names) throws IOException {
+        var reader = new DataLogReader(path);
+        if (!reader.isValid()) {
+            throw new IOException("not a valid wpilog: " + path);
+        }
+
+        var log = new ReplayLog();
+        // entry id -> series, rebuilt from start records as the file is walked
+        var doubleIds = new HashMap<Integer, Series>();
+        var doubleTypes = new HashMap<Integer, String>();
+        var poseIds = new HashMap<Integer, PoseSeries>();
+        var pose2dIds = new HashMap<Integer, Boolean>();
+
+        for (DataLogRecord record : reader) {
+            log.m_recordCount++;
+            if (record.isStart()) {
+                var start = record.getStartData();
+                var name = start.name.startsWith(kNtPrefix) ? start.name.substring(kNtPrefix.length()) : start.name;
+                if (!names.contains(name)) {
+                    continue;
+                }
+                switch (start.type) {
+                    case "double", "int64", "boolean" -> {
+                        doubleIds.put(start.entry, log.m_series.computeIfAbsent(name, k -> new Series()));
+                        doubleTypes.put(start.entry, start.type);
+                    }
+                    case "struct:Pose3d", "struct:Pose2d" -> {
+                        poseIds.put(start.entry, log.m_poses.computeIfAbsent(name, k -> new PoseSeries()));
+                        pose2dIds.put(start.entry, start.type.equals("struct:Pose2d"));
+                    }
+                    default ->
+                        System.out.println("[REPLAY] skipping " + start.name + " of unsupported type " + start.type);
+                }
+                continue;
+            }
+            if (record.isControl()) {
+                continue;
+            }
+
+            long timestamp = record.getTimestamp();
+            int entry = record.getEntry();
+            var series = doubleIds.get(entry);
+            if (series != null) {
+                double value = switch (doubleTypes.get(entry)) {
+                    case "double" -> record.getDouble();
+                    case "int64" -> record.getInteger();
+                    default -> record.getBoolean() ? 1 : 0;
+                };
+                series.add(timestamp, value);
+            } else {
+                var poses = poseIds.get(entry);
+                if (poses == null) {
+                    continue;
+                }
+                var buf = ByteBuffer.wrap(record.getRaw()).order(ByteOrder.LITTLE_ENDIAN);
+                poses.add(timestamp, pose2dIds.get(entry) ? new Pose3d(kPose2dStruct.unpack(buf)) : kPose3dStruct.unpack(buf));
+            }
+            log.m_startUs = Math.min(log.m_startUs, timestamp);
+            log.m_endUs = Math.max(log.m_endUs, timestamp);
+        }
+
+        // NT and direct samples of one entry were appended in file order, not time order
+        for (var series : log.m_series.values()) {
+            sortByTime(series);
+        }
+        for (var poses : log.m_poses.values()) {
+            sortByTime(poses);
+        }
+        return log;
+    }
+
+    private static void sortByTime(Series series) {
+        var order = sortedOrder(series.m_timestamps, series.m_size);
+        if (order == null) {
+            return;
+        }
+        var timestamps = new long[series.m_size];
+        var values = new double[series.m_size];
+        for (int i = 0; i < series.m_size; i++) {
+            timestamps[i] = series.m_timestamps[order[i]];
+            values[i] = series.m_values[order[i]];
+        }
+        series.m_timestamps = timestamps;
+        series.m_values = values;
+    }
+
+    private static void sortByTime(PoseSeries series) {
+        var order = sortedOrder(series.m_timestamps, series.m_size);
+        if (order == null) {
+            return;
+        }
+        var timestamps = new long[series.m_size];
+        var poses = new Pose3d[series.m_size];
+        for (int i = 0; i < series.m_size; i++) {
+            timestamps[i] = series.m_timestamps[order[i]];
+            poses[i] = series.m_poses[order[i]];
+        }
+        series.m_timestamps = timestamps;
+        series.m_poses = poses;
+    }
+
+    /** @return a stable sort permutation, or null if the timestamps are already in order */
+    private static Integer[] sortedOrder(long[] timestamps, int size) {
+        boolean sorted = true;
+        for (int i = 1; i < size && sorted; i++) {
+            sorted = timestamps[i - 1] <= timestamps[i];
+        }
+        if (sorted) {
+            return null;
+        }
+        var order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+        return order;
+    }
+
+    /** @return the samples of an entry, empty if it was not in the log */
+    public Series getSeries(String name) {
+        return m_series.getOrDefault(name, new Series());
+    }
+
+    /** @return the samples of a Pose3d or Pose2d entry, empty if it was not in the log */
+    public PoseSeries getPoses(String name) {
+        return m_poses.getOrDefault(name, new PoseSeries());
+    }
+
+    /** @return timestamp of the first kept sample */
+    public long getStartUs() {
+        return m_startUs == Long.MAX_VALUE ? 0 : m_startUs;
+    }
+
+    /** @return timestamp of the last kept sample */
+    public long getEndUs() {
+        return m_endUs == Long.MIN_VALUE ? 0 : m_endUs;
+    }
+
+    /** @return number of records in the file, kept or not */
+    public long getRecordCount() {
+        return m_recordCount;
+    }
+}
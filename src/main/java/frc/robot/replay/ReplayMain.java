@@ -0,0 +1,350 @@
+package frc.robot.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import edu.wpi.first.math.util.Units;
+import frc.robot.SpeakerTargetEstimator;
+import frc.robot.Vision;
+import frc.robot.Constants.AimK;
+import frc.robot.Constants.FieldK;
+import frc.robot.subsystems.shooter.ShotMap;
+import frc.util.EdgeLatch;
+
+import static edu.wpi.first.units.Units.Meters;
+
+/**
+ * Offline replay of a match log through the pure parts of Vision, Aim, the speaker target and the
+ * Superstructure beam-break handling, as fast as the laptop can go. Every output that the
+ * robot logged is diffed against what the current code computes from the same inputs, so
+ * filter and state-machine changes can be regression-tested against real data.
+ * <p>
+ * Run with {@code ./gradlew replay --args="path/to/log.wpilog [--red|--blue]"}. The alliance is
+ * inferred from the logged speaker position if not given.
+ */
+public final class ReplayMain {
+    private ReplayMain() {
+    }
+
+    /** Outputs logged within this long after an input came from the same loop */
+    private static final long kSameLoopUs = 5_000;
+    /** Extended beam-break transitions this close together count as the same one */
+    private static final long kTransitionToleranceUs = 25_000;
+    /** How long the beam must be continuous before Superstructure drops the extended signal */
+    private static final double kExtendedDebounceSecs = 0.1;
+    private static final double kPitchToleranceDeg = 1e-6;
+    private static final double kYawToleranceDeg = 1e-6;
+
+    private static final String kRawEstimate = "Robot/Vision/frontCamRawEstimate";
+    private static final String kFilteredEstimate = "Robot/Vision/frontCamFilteredEstimate";
+    private static final String kSpeakerPos = "Robot/Aim/speakerPos";
+    private static final String kDesiredPitch = "Robot/Aim/desiredPitch";
+    private static final String kSpeakerPitchPose = "Robot/Aim/speakerPitchPose";
+    private static final String kSpeakerRangeRate = "Robot/Aim/speakerRangeRate";
+    /** The shot map deployed with this code, which replay assumes the robot was running */
+    private static final Path kShotMapPath = Path.of("src", "main", "deploy", ShotMap.kFileName);
+    private static final String kYawErrorOpt = "Robot/Swerve/yawErrorOpt";
+    private static final String kSpeakerYawPose = "Robot/Swerve/speakerYawPose";
+
+    /**
+     * Superstructure's extended beam-break debounce. The raw beam-break topics are logged
+     * change-only, so between two samples the sensor held its last value and the robot kept
+     * evaluating the debounce every loop; {@link #holdUntil} plays that gap forward.
+     */
+    private static final class ExtendedDebounce {
+        private static final long kDebounceUs = (long) (kExtendedDebounceSecs * 1e6);
+
+        final ArrayList<Long> transitionsUs = new ArrayList<>();
+        final ArrayList<Boolean> transitionValues = new ArrayList<>();
+        private boolean m_extended = false;
+        private long m_continuousSinceUs = -1;
+
+        /** Drops the extended signal if the debounce ran out while the last value was held */
+        void holdUntil(long tUs) {
+            if (m_extended && m_continuousSinceUs >= 0 && tUs - m_continuousSinceUs >= kDebounceUs) {
+                m_extended = false;
+                transitionsUs.add(m_continuousSinceUs + kDebounceUs);
+                transitionValues.add(false);
+            }
+        }
+
+        void update(boolean latched, long tUs) {
+            holdUntil(tUs);
+            if (latched) {
+                m_continuousSinceUs = -1;
+                if (!m_extended) {
+                    m_extended = true;
+                    transitionsUs.add(tUs);
+                    transitionValues.add(true);
+                }
+            } else if (m_continuousSinceUs < 0) {
+                m_continuousSinceUs = tUs;
+            }
+        }
+    }
+
+    /** Accumulates the error between one replayed output and its logged value */
+    private static final class Diff {
+        final String name;
+        final double tolerance;
+        long count = 0;
+        long overTolerance = 0;
+        double maxAbsErr = 0;
+        double sumAbsErr = 0;
+
+        Diff(String name, double tolerance) {
+            this.name = name;
+            this.tolerance = tolerance;
+        }
+
+        void add(double replayed, double logged) {
+            double err = Math.abs(replayed - logged);
+            count++;
+            sumAbsErr += err;
+            maxAbsErr = Math.max(maxAbsErr, err);
+            if (err > tolerance) {
+                overTolerance++;
+            }
+        }
+
+        void print() {
+            System.out.printf("  %-40s n=%-8d mismatches=%-6d maxErr=%.3g meanErr=%.3g%n",
+                name, count, overTolerance, maxAbsErr, count == 0 ? 0 : sumAbsErr / count);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: replay <log.wpilog> [--red|--blue]");
+            System.exit(1);
+        }
+        Boolean redArg = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--red")) {
+                redArg = true;
+            } else if (args[i].equals("--blue")) {
+                redArg = false;
+            }
+        }
+
+        var names = Set.of(kRawEstimate, kFilteredEstimate, kSpeakerPos, kDesiredPitch, kYawErrorOpt, kSpeakerYawPose,
+            kSpeakerPitchPose,
+            beamBreakName("conveyor"), beamBreakIrqName("conveyor"), beamBreakExtendedName("conveyor"),
+            beamBreakName("shooter"), beamBreakIrqName("shooter"), beamBreakExtendedName("shooter"));
+
+        long readStart = System.nanoTime();
+        var log = ReplayLog.read(args[0], names);
+        double readSecs = (System.nanoTime() - readStart) / 1e9;
+        double logSecs = (log.getEndUs() - log.getStartUs()) / 1e6;
+        System.out.printf("[REPLAY] read %d records (%.1f s of robot time) in %.2f s%n",
+            log.getRecordCount(), logSecs, readSecs);
+
+        boolean red = redArg != null ? redArg : inferRed(log);
+        System.out.println("[REPLAY] alliance: " + (red ? "red" : "blue") + (redArg == null ? " (inferred)" : ""));
+
+        long replayStart = System.nanoTime();
+        var diffs = new ArrayList<Diff>();
+        var shotMap = ShotMap.fromCsv(kShotMapPath);
+
+        long samples = replayVision(log, diffs);
+        samples += replayAimPitch(log, red, shotMap, diffs);
+        samples += replaySpeakerYaw(log, red, diffs);
+        samples += replayBeamBreak(log, "conveyor", false, diffs);
+        samples += replayBeamBreak(log, "shooter", true, diffs);
+        double replaySecs = (System.nanoTime() - replayStart) / 1e9;
+
+        System.out.println("[REPLAY] results:");
+        for (var diff : diffs) {
+            diff.print();
+        }
+        System.out.printf("[REPLAY] replayed %d samples in %.3f s (%.0fx real time, %.0f samples/s)%n",
+            samples, replaySecs, replaySecs > 0 ? logSecs / replaySecs : 0, replaySecs > 0 ? samples / replaySecs : 0);
+
+        boolean anyMismatch = diffs.stream().anyMatch(d -> d.overTolerance > 0);
+        System.exit(anyMismatch ? 2 : 0);
+    }
+
+    private static String beamBreakName(String which) {
+        return "Robot/Sensors/" + which + "BeamBreak";
+    }
+
+    private static String beamBreakIrqName(String which) {
+        return "Robot/Sensors/" + which + "BeamBreakIrq";
+    }
+
+    private static String beamBreakExtendedName(String which) {
+        return "Robot/Superstructure/" + which + "BeamBreakExtended";
+    }
+
+    /** The logged aim point is always on our alliance's side of the field */
+    private static boolean inferRed(ReplayLog log) {
+        var speakerPos = log.getPoses(kSpeakerPos);
+        if (speakerPos.size() == 0) {
+            return false;
+        }
+        return speakerPos.poseAt(0).getX() > FieldK.kFieldLength.in(Meters) / 2;
+    }
+
+    /** Replays the front camera estimates through the Vision plausibility check */
+    private static long replayVision(ReplayLog log, List<Diff> diffs) {
+        var raw = log.getPoses(kRawEstimate);
+        var filtered = log.getPoses(kFilteredEstimate);
+
+        var plausibleDiff = new Diff("Vision plausibility (1 = accepted)", 0);
+        long stdDevRejected = 0;
+
+        int filteredIdx = 0;
+        for (int i = 0; i < raw.size(); i++) {
+            long t = raw.timestampAt(i);
+            while (filteredIdx < filtered.size() && filtered.timestampAt(filteredIdx) < t) {
+                filteredIdx++;
+            }
+            boolean loggedAccepted = filteredIdx < filtered.size()
+                && filtered.timestampAt(filteredIdx) - t <= kSameLoopUs;
+            boolean plausible = Vision.isPlausible(raw.poseAt(i));
+
+            if (plausible && !loggedAccepted) {
+                // the std dev check needs the full pipeline result, which isn't logged
+                stdDevRejected++;
+                continue;
+            }
+            plausibleDiff.add(plausible ? 1 : 0, loggedAccepted ? 1 : 0);
+        }
+
+        System.out.printf("[REPLAY] %d plausible estimates were dropped by the std dev check (not replayable)%n",
+            stdDevRejected);
+        diffs.add(plausibleDiff);
+        return raw.size();
+    }
+
+    /**
+     * Recomputes every desiredPitch sample from the fused pose Aim logged next to it: the range
+     * from {@link SpeakerTargetEstimator#rangeToSpeaker}, led by the logged range rate, then the
+     * pitch for that range from the shot map, like Aim does.
+     */
+    private static long replayAimPitch(ReplayLog log, boolean red, ShotMap shotMap, List<Diff> diffs) {
+        var poses = log.getPoses(kSpeakerPitchPose);
+        var desiredPitch = log.getSeries(kDesiredPitch);
+        var rangeRate = log.getSeries(kSpeakerRangeRate);
+        var pitchDiff = new Diff("Aim desiredPitch (deg)", kPitchToleranceDeg);
+
+        for (int i = 0; i < poses.size(); i++) {
+            long t = poses.timestampAt(i);
+            var pose = poses.poseAt(i);
+            double range = SpeakerTargetEstimator.rangeToSpeaker(pose.getX(), pose.getY(), red);
+            // all three are logged in the same call, so take the nearest sample either side
+            int rateIdx = rangeRate.firstAtOrAfter(t - kSameLoopUs);
+            if (rateIdx < rangeRate.size() && Math.abs(rangeRate.timestampAt(rateIdx) - t) <= kSameLoopUs) {
+                range += rangeRate.valueAt(rateIdx) * AimK.kPitchLeadSecs;
+            }
+            double pitch = shotMap.pitchRads(range);
+            int pitchIdx = desiredPitch.firstAtOrAfter(t - kSameLoopUs);
+            if (pitchIdx < desiredPitch.size() && Math.abs(desiredPitch.timestampAt(pitchIdx) - t) <= kSameLoopUs) {
+                pitchDiff.add(Units.radiansToDegrees(pitch), desiredPitch.valueAt(pitchIdx));
+            }
+        }
+
+        diffs.add(pitchDiff);
+        return poses.size();
+    }
+
+    /**
+     * Recomputes every yawErrorOpt sample from the fused pose Swerve logged next to it, through
+     * the same {@link SpeakerTargetEstimator#bearingToSpeaker} the heading controllers use.
+     */
+    private static long replaySpeakerYaw(ReplayLog log, boolean red, List<Diff> diffs) {
+        var poses = log.getPoses(kSpeakerYawPose);
+        var yawErrorOpt = log.getSeries(kYawErrorOpt);
+        var yawDiff = new Diff("Swerve yawErrorOpt (deg)", kYawToleranceDeg);
+
+        for (int i = 0; i < poses.size(); i++) {
+            long t = poses.timestampAt(i);
+            var pose = poses.poseAt(i);
+            double yawErr = SpeakerTargetEstimator.bearingToSpeaker(pose.getX(), pose.getY(),
+                pose.getRotation().getZ(), red);
+            // both are logged in the same call, so take the nearest sample either side
+            int yawIdx = yawErrorOpt.firstAtOrAfter(t - kSameLoopUs);
+            if (yawIdx < yawErrorOpt.size() && Math.abs(yawErrorOpt.timestampAt(yawIdx) - t) <= kSameLoopUs) {
+                yawDiff.add(Units.radiansToDegrees(yawErr), yawErrorOpt.valueAt(yawIdx));
+            }
+        }
+
+        diffs.add(yawDiff);
+        return poses.size();
+    }
+
+    /**
+     * Rebuilds interrupt edges from the logged raw beam-break samples (broken = DIO low, so a
+     * falling edge), runs them through the same {@link EdgeLatch} Superstructure uses, and
+     * debounces the result like the extended beam-break triggers. Raw and interrupt samples are
+     * change-only, so each value holds until the next sample.
+     * @param initFromSensor whether the latch starts at the sensor's first value, like the shooter's
+     */
+    private static long replayBeamBreak(ReplayLog log, String which, boolean initFromSensor, List<Diff> diffs) {
+        var raw = log.getSeries(beamBreakName(which));
+        var irq = log.getSeries(beamBreakIrqName(which));
+        var extended = log.getSeries(beamBreakExtendedName(which));
+
+        var irqDiff = new Diff(which + "BeamBreakIrq (1 = broken)", 0);
+        var extDiff = new Diff(which + "BeamBreakExtended transitions (1 = unmatched)", 0);
+        if (raw.size() == 0) {
+            diffs.add(irqDiff);
+            diffs.add(extDiff);
+            return 0;
+        }
+
+        var latch = new EdgeLatch(initFromSensor && raw.booleanAt(0));
+        double lastRising = 0;
+        double lastFalling = 0;
+        boolean lastRaw = raw.booleanAt(0);
+
+        var debounce = new ExtendedDebounce();
+
+        int rawIdx = 0;
+        // one extra pass after the last interrupt sample for the raw samples logged after it
+        for (int i = 0; i <= irq.size(); i++) {
+            long t = i < irq.size() ? irq.timestampAt(i) : log.getEndUs();
+            // every raw sample from the same fastPeriodic loop or earlier
+            while (rawIdx < raw.size() && raw.timestampAt(rawIdx) <= t + kSameLoopUs) {
+                long rawT = raw.timestampAt(rawIdx);
+                boolean broken = raw.booleanAt(rawIdx);
+                if (broken != lastRaw) {
+                    if (broken) {
+                        lastFalling = rawT / 1e6;
+                    } else {
+                        lastRising = rawT / 1e6;
+                    }
+                    lastRaw = broken;
+                }
+                debounce.update(latch.update(lastRising, lastFalling), rawT);
+                rawIdx++;
+            }
+            debounce.holdUntil(t);
+            if (i < irq.size()) {
+                irqDiff.add(latch.get() ? 1 : 0, irq.booleanAt(i) ? 1 : 0);
+            }
+        }
+        var extTransitionsUs = debounce.transitionsUs;
+        var extTransitionValues = debounce.transitionValues;
+
+        // every logged extended transition should have a replayed one with the same value nearby
+        int replayIdx = 0;
+        for (int i = 0; i < extended.size(); i++) {
+            long t = extended.timestampAt(i);
+            while (replayIdx < extTransitionsUs.size() && extTransitionsUs.get(replayIdx) < t - kTransitionToleranceUs) {
+                replayIdx++;
+            }
+            boolean matched = replayIdx < extTransitionsUs.size()
+                && extTransitionsUs.get(replayIdx) <= t + kTransitionToleranceUs
+                && extTransitionValues.get(replayIdx) == extended.booleanAt(i);
+            extDiff.add(matched ? 0 : 1, 0);
+        }
+
+        diffs.add(irqDiff);
+        diffs.add(extDiff);
+        return raw.size();
+    }
+}
@@ -6,6 +6,7 @@ import com.revrobotics.CANSparkLowLevel.MotorType;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.util.LoopProfiler;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.BooleanLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
@@ -13,6 +14,7 @@ import frc.util.logging.WaltLogger.DoubleLogger;
 import static frc.robot.Constants.ClimberK.*;
 
 public class Climber extends SubsystemBase {
+    private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Climber/periodic");
     private final CANSparkMax m_right = new CANSparkMax(kRightId, MotorType.kBrushless); 
     private final CANSparkMax m_left = new CANSparkMax(kLeftId, MotorType.kBrushless);
 
@@ -81,7 +83,9 @@ public class Climber extends SubsystemBase {
 
     @Override
     public void periodic() {
+        m_loopTiming.start();
         log_leftPos.accept(m_left.getEncoder().getPosition());
         log_rightPos.accept(m_right.getEncoder().getPosition());
+        m_loopTiming.stop();
     }
 }  
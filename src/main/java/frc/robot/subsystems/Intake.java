@@ -1,5 +1,6 @@
 package frc.robot.subsystems;
 
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.revrobotics.CANSparkMax;
@@ -8,6 +9,8 @@ import com.revrobotics.CANSparkLowLevel.MotorType;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.util.LoopProfiler;
+import frc.util.SignalGroup;
 import frc.util.WaltRangeChecker;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
@@ -15,10 +18,18 @@ import frc.util.logging.WaltLogger.DoubleLogger;
 import static frc.robot.Constants.IntakeK.*;
 
 public class Intake extends SubsystemBase {
+    private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Intake/periodic");
     private final TalonFX m_motor = new TalonFX(kIntakeId);
     private final CANSparkMax m_feeder = new CANSparkMax(kFeederId,
         MotorType.kBrushless);
 
+    private final SignalGroup m_signals = new SignalGroup("Intake");
+    private final StatusSignal<Double> m_statorCurrent = m_signals.add(m_motor.getStatorCurrent());
+    private final StatusSignal<Double> m_supplyCurrent = m_signals.add(m_motor.getSupplyCurrent());
+    private final StatusSignal<Double> m_motorVoltage = m_signals.add(m_motor.getMotorVoltage());
+    private final StatusSignal<Double> m_supplyVoltage = m_signals.add(m_motor.getSupplyVoltage());
+    private final StatusSignal<Double> m_deviceTemp = m_signals.add(m_motor.getDeviceTemp());
+
     private final VoltageOut m_voltsFoc = new VoltageOut(0).withEnableFOC(true);
 
     public final Trigger trg_middleRollerCurrentSpike = new Trigger(() -> m_feeder.getOutputCurrent() > 20).debounce(0.1);
@@ -36,25 +47,25 @@ public class Intake extends SubsystemBase {
         m_motor.getConfigurator().apply(IntakeConfigs.kConfigs);
         runMainRollers(0);
 
-        m_motor.getStatorCurrent().setUpdateFrequency(50);
-        m_motor.getSupplyCurrent().setUpdateFrequency(50);
-        m_motor.getMotorVoltage().setUpdateFrequency(50);
-        m_motor.getDeviceTemp().setUpdateFrequency(10);
-        m_motor.getSupplyVoltage().setUpdateFrequency(50);
+        m_statorCurrent.setUpdateFrequency(50);
+        m_supplyCurrent.setUpdateFrequency(50);
+        m_motorVoltage.setUpdateFrequency(50);
+        m_deviceTemp.setUpdateFrequency(10);
+        m_supplyVoltage.setUpdateFrequency(50);
 
         WaltRangeChecker.addDoubleChecker(
             "IntakeStatorCurrent",
-            () -> m_motor.getStatorCurrent().getValueAsDouble(), 0, 35, 1, false
+            () -> m_statorCurrent.getValueAsDouble(), 0, 35, 1, false
         );
 
         WaltRangeChecker.addDoubleChecker(
             "IntakeSupplyCurrent",
-            () -> m_motor.getSupplyCurrent().getValueAsDouble(), 0, 30, 1, false
+            () -> m_supplyCurrent.getValueAsDouble(), 0, 30, 1, false
         );
 
         WaltRangeChecker.addDoubleChecker(
             "IntakeTemperature",
-            () -> m_motor.getDeviceTemp().getValueAsDouble(), 0, 40, 1, true
+            () -> m_deviceTemp.getValueAsDouble(), 0, 40, 1, true
         );
 
         m_motor.optimizeBusUtilization();
@@ -121,13 +132,16 @@ public class Intake extends SubsystemBase {
 
     @Override
     public void periodic() {
-        log_statorCurrent.accept(m_motor.getStatorCurrent().getValueAsDouble());
-        log_supplyCurrent.accept(m_motor.getSupplyCurrent().getValueAsDouble());
-        log_outputVoltage.accept(m_motor.getMotorVoltage().getValueAsDouble());
-        log_supplyVoltage.accept(m_motor.getSupplyVoltage().getValueAsDouble());
+        m_loopTiming.start();
+        m_signals.refresh();
+        log_statorCurrent.accept(m_statorCurrent.getValueAsDouble());
+        log_supplyCurrent.accept(m_supplyCurrent.getValueAsDouble());
+        log_outputVoltage.accept(m_motorVoltage.getValueAsDouble());
+        log_supplyVoltage.accept(m_supplyVoltage.getValueAsDouble());
 
         log_middleStatorCurrent.accept(m_feeder.getOutputCurrent());
         log_middleOutputVoltage.accept(m_feeder.getAppliedOutput());
         log_middleSupplyVoltage.accept(m_feeder.getBusVoltage());
+        m_loopTiming.stop();
     }
 }
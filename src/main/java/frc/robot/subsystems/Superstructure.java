@@ -27,7 +27,10 @@ import frc.robot.Constants.AimK;
 import frc.robot.subsystems.shooter.Aim;
 import frc.robot.subsystems.shooter.Conveyor;
 import frc.robot.subsystems.shooter.Shooter;
+import frc.util.AsyncConsole;
 import frc.util.CommandDoodads;
+import frc.util.EdgeLatch;
+import frc.util.FlightRecorder;
 import frc.util.WaltRangeChecker;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.*;
@@ -61,27 +64,39 @@ public class Superstructure {
     private int shotNotes_amp = 0;
 
     private final BooleanLogger log_frontVisiSight = WaltLogger.logBoolean("Sensors", "frontVisiSight",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_frontVisiSightIrq = WaltLogger.logBoolean("Sensors", "frontVisiSightIrq",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_conveyorBeamBreakIrq = WaltLogger.logBoolean("Sensors", "conveyorBeamBreakIrq",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_conveyorBeamBreak = WaltLogger.logBoolean("Sensors", "conveyorBeamBreak",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_shooterBeamBreakIrq = WaltLogger.logBoolean("Sensors", "shooterBeamBreakIrq",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_shooterBeamBreak = WaltLogger.logBoolean("Sensors", "shooterBeamBreak",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_autonIntakeReq = WaltLogger.logBoolean(kDbTabName, "autonIntakeReq",
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
     private final BooleanLogger log_autonShootReq = WaltLogger.logBoolean(kDbTabName, "autonShootReq",
-        PubSubOption.sendAll(true)); 
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs); 
     private final BooleanLogger log_preloadReq = WaltLogger.logBoolean(kDbTabName, "preload", 
-        PubSubOption.sendAll(true));
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
 
-    private final IntLogger log_intakenNotes = WaltLogger.logInt(kDbTabName, "intakenNotes");
-    private final IntLogger log_shotNotes = WaltLogger.logInt(kDbTabName, "shotNotes");
-    private final IntLogger log_shotNotes_amp = WaltLogger.logInt(kDbTabName, "shotNotes_amp");
+    private final IntLogger log_intakenNotes = WaltLogger.logInt(kDbTabName, "intakenNotes")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+    private final IntLogger log_shotNotes = WaltLogger.logInt(kDbTabName, "shotNotes")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+    private final IntLogger log_shotNotes_amp = WaltLogger.logInt(kDbTabName, "shotNotes_amp")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
 
     private NoteState m_state;
 
@@ -154,18 +169,14 @@ public class Superstructure {
     });
     
     /** This goes true when the beam is broken and false when the beam is continuous */
-    private boolean conveyorBeamBreakIrq = false;
-    private double conveyorBeamBreakIrqLastRising = 0;
-    private double conveyorBeamBreakIrqLastFalling = 0;
+    private final EdgeLatch conveyorBeamBreakIrq = new EdgeLatch(false);
     /** This handles the beam break sensor by finding */
     private final SynchronousInterrupt irq_conveyorBeamBreak = new SynchronousInterrupt(conveyorBeamBreak);
     private final BooleanLogger log_conveyorBeamBreakExtended = 
         WaltLogger.logBoolean(kDbTabName, "conveyorBeamBreakExtended", PubSubOption.sendAll(true));
     
     /** This goes true when the beam is broken and false when the beam is continuous */
-    private boolean shooterBeamBreakIrq = false;
-    private double shooterBeamBreakIrqLastRising = 0;
-    private double shooterBeamBreakIrqLastFalling = 0;
+    private final EdgeLatch shooterBeamBreakIrq = new EdgeLatch(false);
     private final SynchronousInterrupt irq_shooterBeamBreak = new SynchronousInterrupt(shooterBeamBreak);
     private final BooleanLogger log_shooterBeamBreakExtended =
         WaltLogger.logBoolean(kDbTabName, "shooterBeamBreakExtended", PubSubOption.sendAll(true));
@@ -176,10 +187,14 @@ public class Superstructure {
     public final Trigger irqTrg_shooterBeamBreak;
 
     private final IntLogger log_state = WaltLogger.logInt(kDbTabName, "state",
-        PubSubOption.sendAll(true));
-    private final BooleanLogger log_driverIntakeReq = WaltLogger.logBoolean(kDbTabName, "intakeButton");
-    private final BooleanLogger log_driverShootReq = WaltLogger.logBoolean(kDbTabName, "shootButton");
-    private final BooleanLogger log_aimReady = WaltLogger.logBoolean(kDbTabName, "aimReady");
+        PubSubOption.sendAll(true))
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+    private final BooleanLogger log_driverIntakeReq = WaltLogger.logBoolean(kDbTabName, "intakeButton")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+    private final BooleanLogger log_driverShootReq = WaltLogger.logBoolean(kDbTabName, "shootButton")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
+    private final BooleanLogger log_aimReady = WaltLogger.logBoolean(kDbTabName, "aimReady")
+        .withChangesOnly(WaltLogger.kDefaultHeartbeatSecs);
 
     /** Timer used for determining how long between shoot and a shootReq being registered */
     private Timer timer = new Timer();
@@ -217,15 +232,15 @@ public class Superstructure {
         irqTrg_frontSensor = new Trigger(sensorEventLoop, () -> frontVisiSightSeenNote);
         
         // initialize (inverted)
-        shooterBeamBreakIrq = !shooterBeamBreak.get();
+        shooterBeamBreakIrq.set(!shooterBeamBreak.get());
 
-        irqTrg_conveyorBeamBreak = new Trigger(sensorEventLoop, () -> conveyorBeamBreakIrq);
+        irqTrg_conveyorBeamBreak = new Trigger(sensorEventLoop, conveyorBeamBreakIrq::get);
         irqTrg_conveyorBeamBreak
             .onTrue(Commands.runOnce(()-> log_conveyorBeamBreakExtended.accept(true)).ignoringDisable(true));
         irqTrg_conveyorBeamBreak.negate().debounce(0.1)
             .onTrue(Commands.runOnce(() -> log_conveyorBeamBreakExtended.accept(false)).ignoringDisable(true));
 
-        irqTrg_shooterBeamBreak = new Trigger(sensorEventLoop, () -> shooterBeamBreakIrq);
+        irqTrg_shooterBeamBreak = new Trigger(sensorEventLoop, shooterBeamBreakIrq::get);
         irqTrg_shooterBeamBreak
             .onTrue(Commands.runOnce(()-> log_shooterBeamBreakExtended.accept(true)).ignoringDisable(true));
         irqTrg_shooterBeamBreak.negate().debounce(0.1)
@@ -238,7 +253,13 @@ public class Superstructure {
         m_state = IDLE;
 
         configureStateTriggers();
-        WaltRangeChecker.addIntegerChecker("ShooterBeamBreak", () -> shooterBeamBreakIrq ? 1 : 0, -1, 1, 1, true);
+        WaltRangeChecker.addIntegerChecker("ShooterBeamBreak", () -> shooterBeamBreakIrq.get() ? 1 : 0, -1, 1, 1, true);
+
+        FlightRecorder.addChannel("Superstructure/state", () -> m_state.idx);
+        FlightRecorder.addChannel("Sensors/conveyorBeamBreak", () -> bs_conveyorBeamBreak.getAsBoolean() ? 1 : 0);
+        FlightRecorder.addChannel("Sensors/conveyorBeamBreakIrq", () -> conveyorBeamBreakIrq.get() ? 1 : 0);
+        FlightRecorder.addChannel("Sensors/shooterBeamBreak", () -> bs_shooterBeamBreak.getAsBoolean() ? 1 : 0);
+        FlightRecorder.addChannel("Sensors/shooterBeamBreakIrq", () -> shooterBeamBreakIrq.get() ? 1 : 0);
 
         configureShootTimer();
     }
@@ -286,7 +307,7 @@ public class Superstructure {
             if (m_state == state) { return; }
             var oldState = m_state;
             m_state = state;
-            System.out.println("changing state from " + oldState + " to " + m_state);
+            AsyncConsole.print("changing state from " + oldState + " to " + m_state);
         }).withName("SuperStateChange_To" + state);
     }
 
@@ -526,46 +547,16 @@ public class Superstructure {
 
     /**
      * Evaluates whether there should be a conveyer interrupt request.
-     * No return because it sets conveyerBeamBreakIrq to the corresponding output
+     * No return because it updates conveyorBeamBreakIrq with any new edge
      */
     private void evaluateConveyorIrq() {
-        double latestRising = irq_conveyorBeamBreak.getRisingTimestamp();
-        double latestFalling = irq_conveyorBeamBreak.getFallingTimestamp();
-        boolean risingNew = latestRising > conveyorBeamBreakIrqLastRising;
-        if (risingNew) {
-            conveyorBeamBreakIrqLastRising = latestRising;
-        }
-
-        boolean fallingNew = latestFalling > conveyorBeamBreakIrqLastFalling;
-        if (fallingNew) {
-            conveyorBeamBreakIrqLastFalling = latestFalling;
-        }
-
-        if (latestFalling > latestRising && fallingNew) {
-            conveyorBeamBreakIrq = true;
-        } else if (latestRising > latestFalling && risingNew) {
-            conveyorBeamBreakIrq = false;
-        }
+        conveyorBeamBreakIrq.update(
+            irq_conveyorBeamBreak.getRisingTimestamp(), irq_conveyorBeamBreak.getFallingTimestamp());
     }
 
     private void evaluateShooterIrq() {
-        double latestRising = irq_shooterBeamBreak.getRisingTimestamp();
-        double latestFalling = irq_shooterBeamBreak.getFallingTimestamp();
-        boolean risingNew = latestRising > shooterBeamBreakIrqLastRising;
-        if (risingNew) {
-            shooterBeamBreakIrqLastRising = latestRising;
-        }
-
-        boolean fallingNew = latestFalling > shooterBeamBreakIrqLastFalling;
-        if (fallingNew) {
-            shooterBeamBreakIrqLastFalling = latestFalling;
-        }
-
-        if (latestFalling > latestRising && fallingNew) {
-            shooterBeamBreakIrq = true;
-        } else if (latestRising > latestFalling && risingNew) {
-            shooterBeamBreakIrq = false;
-        }
+        shooterBeamBreakIrq.update(
+            irq_shooterBeamBreak.getRisingTimestamp(), irq_shooterBeamBreak.getFallingTimestamp());
     }
 
     /**
@@ -588,7 +579,7 @@ public class Superstructure {
         log_conveyorBeamBreak.accept(bs_conveyorBeamBreak);
         log_shooterBeamBreak.accept(bs_shooterBeamBreak);
         log_frontVisiSightIrq.accept(frontVisiSightSeenNote);
-        log_conveyorBeamBreakIrq.accept(conveyorBeamBreakIrq);
+        log_conveyorBeamBreakIrq.accept(conveyorBeamBreakIrq.get());
         log_shooterBeamBreakIrq.accept(irqTrg_shooterBeamBreak.getAsBoolean());
         log_intakenNotes.accept(intakenNotes);
         log_shotNotes.accept(shotNotes);
@@ -8,6 +8,7 @@ import java.util.function.Supplier;
 import com.choreo.lib.Choreo;
 import com.choreo.lib.ChoreoTrajectory;
 import com.ctre.phoenix6.SignalLogger;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.configs.OpenLoopRampsConfigs;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain;
@@ -29,6 +30,7 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.PubSubOption;
@@ -44,17 +46,22 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.SpeakerTargetEstimator;
 import frc.robot.Constants.DriveK;
-import frc.robot.Constants.FieldK.SpeakerK;
 import frc.robot.Vision.VisionMeasurement3d;
 import frc.robot.auton.AutonChooser;
 import frc.robot.auton.AutonChooser.AutonOption;
 import frc.util.AdvantageScopeUtil;
 import frc.util.AllianceFlipUtil;
+import frc.util.AsyncConsole;
+import frc.util.CanBusManager;
+import frc.util.LoopProfiler;
+import frc.util.SignalGroup;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.BooleanLogger;
 import frc.util.logging.WaltLogger.DoubleArrayLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.WaltLogger.IntLogger;
 import frc.util.logging.WaltLogger.Pose2dLogger;
 
 import static frc.robot.Constants.FieldK.*;
@@ -71,6 +78,8 @@ import static frc.robot.Constants.AutoK.*;
  * Subsystem so it can be used in command-based projects easily.
  */
 public class Swerve extends SwerveDrivetrain implements Subsystem {
+	private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Swerve/periodic");
+	private final AsyncConsole.Channel m_correctingPrint = AsyncConsole.channel(0.25);
 	private static final double kSimLoopPeriod = 0.005; // 5 ms
 	private Notifier m_simNotifier = null;
 	private double m_lastSimTime;
@@ -96,13 +105,35 @@ public class Swerve extends SwerveDrivetrain implements Subsystem {
 	private double lastGyroYawRads = 0;
 	private double accumGyroYawRads = 0;
 
+	/** Phoenix's odometry thread rate on a CANivore FD bus */
+	private static final double kOdometryHz = 250;
+	/** Drive motor positions for {@link #logModulePositions()}, refreshed together */
+	private final SignalGroup m_moduleSignals = new SignalGroup("SwerveModules");
+	private final StatusSignal<Double>[] m_drivePositions;
+
 	private double[] startWheelPositions = new double[4];
 	private double currentEffectiveWheelRadius = 0;
 
+	/** Chi-square, 3 degrees of freedom, 99%: a measurement past this is almost surely an outlier */
+	private static final double kVisionInnovationGate = 11.34;
+	private static final int kMaxVisionRejectStreak = 15;
+	/** Vision std devs grow by this much per m/s of chassis speed */
+	private static final double kVisionLinearSpeedScale = 0.5;
+	/** Vision std devs grow by this much per rad/s of chassis rotation */
+	private static final double kVisionAngularSpeedScale = 0.75;
+	/** Rough odometry drift over one camera latency (x, y meters, theta rads) */
+	private static final double[] kOdomStdDevs = { 0.1, 0.1, Units.degreesToRadians(3) };
+	/** Fused poses by FPGA time, to compare vision against where we were at capture time */
+	private final TimeInterpolatableBuffer<Pose2d> m_poseHistory = TimeInterpolatableBuffer.createBuffer(1.5);
+	private int m_visionRejectStreak = 0;
+	private int m_visionRejectCount = 0;
+
 	// vision yaw align
 	boolean m_hasVisionYaw = false;
 	Measure<Angle> m_visionYaw = Rotations.of(0);
-	Timer m_visYawTimer = new Timer();
+	/** Turn rate that holds the speaker bearing while driving, fed forward by the heading controllers */
+	double m_visionYawRateRadps = 0;
+	private SpeakerTargetEstimator m_speakerTarget = null;
 
 private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslation();
 	// private final SysIdSwerveRotation characterization = new
@@ -146,21 +177,74 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 	private final DoubleLogger log_pigeonYaw = WaltLogger.logDouble("Swerve", "pigeonYaw");
 
 	private final Pose2dLogger log_desiredPose = WaltLogger.logPose2d("Swerve", "desiredPose");
+	/** The fused pose each yawErrorOpt sample was computed from, for replay */
+	private final Pose2dLogger log_speakerYawPose = WaltLogger.logPose2d("Swerve", "speakerYawPose");
+	private final DoubleLogger log_visionInnovation = WaltLogger.logDouble("Swerve", "visionInnovation");
+	private final IntLogger log_visionRejectCount = WaltLogger.logInt("Swerve", "visionRejectCount");
 
 	/**
-	 * Adds a vision measurement to swerve code (SILLY STUFF)
+	 * Adds a vision measurement to the pose estimator, unless it disagrees with where odometry
+	 * thought the robot was when the frame was captured by more than its uncertainty allows.
+	 * Trust in vision drops as the chassis goes faster or spins, since frames get blurrier and
+	 * latency errors grow.
 	 * @param measurement The vision measurement to add
+	 * @return whether the measurement was fused
 	 */
-	public void addVisionMeasurement3d(VisionMeasurement3d measurement) {
-		// sadge!
+	public boolean addVisionMeasurement3d(VisionMeasurement3d measurement) {
 		var now = Timer.getFPGATimestamp();
 		var timestamp = measurement.estimate().timestampSeconds;
-		if (timestamp > now) return;
+		if (timestamp > now) return false;
+
+		var speeds = getState().speeds;
+		double trustScale = 1
+			+ kVisionLinearSpeedScale * Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond)
+			+ kVisionAngularSpeedScale * Math.abs(speeds.omegaRadiansPerSecond);
+		var stdDevs = measurement.stdDevs().times(trustScale);
+
+		var visionPose = measurement.estimate().estimatedPose.toPose2d();
+		var odomPoseOpt = m_poseHistory.getSample(timestamp);
+		if (odomPoseOpt.isPresent()) {
+			var odomPose = odomPoseOpt.get();
+			double dx = visionPose.getX() - odomPose.getX();
+			double dy = visionPose.getY() - odomPose.getY();
+			double dTheta = MathUtil.angleModulus(
+				visionPose.getRotation().getRadians() - odomPose.getRotation().getRadians());
+			// squared Mahalanobis distance, treating the axes as independent
+			double innovation =
+				dx * dx / (square(stdDevs.get(0, 0)) + square(kOdomStdDevs[0]))
+				+ dy * dy / (square(stdDevs.get(1, 0)) + square(kOdomStdDevs[1]))
+				+ dTheta * dTheta / (square(stdDevs.get(2, 0)) + square(kOdomStdDevs[2]));
+			log_visionInnovation.accept(innovation);
+
+			// after enough rejections in a row odometry is more likely wrong than vision (we got hit,
+			// or the pose was seeded badly), so let one through to pull it back
+			if (innovation > kVisionInnovationGate && m_visionRejectStreak < kMaxVisionRejectStreak) {
+				m_visionRejectStreak++;
+				m_visionRejectCount++;
+				log_visionRejectCount.accept(m_visionRejectCount);
+				return false;
+			}
+		}
+
+		m_visionRejectStreak = 0;
+		addVisionMeasurement(visionPose, timestamp, stdDevs);
+		return true;
+	}
 
-		addVisionMeasurement(
-			measurement.estimate().estimatedPose.toPose2d(),
-			timestamp,
-			measurement.stdDevs());
+	private static double square(double x) {
+		return x * x;
+	}
+
+	@Override
+	public void seedFieldRelative() {
+		super.seedFieldRelative();
+		m_poseHistory.clear();
+	}
+
+	@Override
+	public void seedFieldRelative(Pose2d location) {
+		super.seedFieldRelative(location);
+		m_poseHistory.clear();
 	}
 
 	private void configureAutoBuilder() {
@@ -180,6 +264,7 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 			this);
 	}
 
+	@SuppressWarnings("unchecked")
 	public Swerve(SwerveDrivetrainConstants driveTrainConstants, SwerveModuleConstants... modules) {
 		super(driveTrainConstants, modules);
 		configureAutoBuilder();
@@ -191,10 +276,28 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 		for (var module : Modules) {
 			module.getDriveMotor().getConfigurator().apply(openLoopConfig);
 		}
+		// own copies, so refreshing them here doesn't race the odometry thread
+		m_drivePositions = new StatusSignal[Modules.length];
+		for (int i = 0; i < Modules.length; i++) {
+			m_drivePositions[i] = m_moduleSignals.add(Modules[i].getDriveMotor().getPosition().clone());
+		}
+
+		for (int i = 0; i < Modules.length; i++) {
+			var drive = Modules[i].getDriveMotor();
+			var steer = Modules[i].getSteerMotor();
+			var encoder = Modules[i].getCANcoder();
+			CanBusManager.require("Module" + i + "Drive", drive, kOdometryHz, drive.getPosition(), drive.getVelocity());
+			CanBusManager.require("Module" + i + "Steer", steer, kOdometryHz, steer.getPosition(), steer.getVelocity());
+			// for SysId, which only sees it through SignalLogger
+			CanBusManager.require("Module" + i + "Drive", drive, 50, drive.getMotorVoltage());
+			// steer motors fuse the CANcoder, so they read these straight off the bus
+			CanBusManager.require("Module" + i + "Encoder", encoder, 100, encoder.getPosition(), encoder.getVelocity());
+		}
+		var pigeon = getPigeon2();
+		CanBusManager.require("Pigeon2", pigeon, kOdometryHz, pigeon.getYaw(), pigeon.getAngularVelocityZWorld());
 
 		m_gyroYawRadsSupplier = () -> Units.degreesToRadians(getPigeon2().getAngle());
 		m_thetaController.enableContinuousInput(0, 2 * Math.PI);
-		m_visYawTimer.reset();
 		m_facingAngle.HeadingController.enableContinuousInput(0, 2 * Math.PI);
 		m_facingAngle.HeadingController.setP(kPTheta - 2);
 	}
@@ -249,11 +352,12 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 	public Command faceSpeakerTag(Supplier<SwerveRequest.FieldCentric> rqSup) {
 		return applyRequest(() -> {
 			// var speakerMeasurementOpt = vision.speakerTargetSupplier().get();
+			sampleSpeakerYaw();
 			if (!m_hasVisionYaw) {
 				return rqSup.get();
 			}
 
-			var yawEffort = m_visionYaw.in(Radians) * 1.2;
+			var yawEffort = m_visionYaw.in(Radians) * 1.2 + m_visionYawRateRadps;
 			log_yawEffort.accept(yawEffort);
 
 			return rqSup.get()
@@ -267,13 +371,14 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 		final SwerveRequest.FieldCentric m_req = new SwerveRequest.FieldCentric();
 		return applyRequest(() -> {
 			// var speakerMeasurementOpt = vision.speakerTargetSupplier().get();
+			sampleSpeakerYaw();
 			if (!m_hasVisionYaw) {
 				return m_req;
 			}
 
-			System.out.println("[VISION] Correcting by " + m_visionYaw.in(Degrees) + "°");
+			m_correctingPrint.print("[VISION] Correcting by ", m_visionYaw.in(Degrees), "°");
 
-			var yawEffort = m_visionYaw.in(Radians) * 7.5;
+			var yawEffort = m_visionYaw.in(Radians) * 7.5 + m_visionYawRateRadps;
 			log_yawEffort.accept(yawEffort);
 
 			return m_req 	
@@ -308,24 +413,66 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 		});
 	}
 
-	public void calculateYawErr(Optional<VisionMeasurement3d> measOpt, boolean tagsPresent) {
-		if (measOpt.isPresent()) {
-			var pose = measOpt.get().estimate().estimatedPose;
-			var speakerTrans = AllianceFlipUtil.apply(SpeakerK.kBlueCenterOpening);
-			var dist = speakerTrans.minus(pose.getTranslation());
-			var desiredYaw = Math.atan2(dist.getY(), dist.getX());
-			var curYaw = pose.getRotation().getZ();
-			var yawErr = MathUtil.angleModulus((desiredYaw - curYaw) - Math.PI);
+	/**
+	 * Drives with the given translation while holding a field heading that can change every loop.
+	 * NaN headings hold the last one, starting from wherever the robot faces.
+	 */
+	public Command faceHeading(DoubleSupplier xRate, DoubleSupplier yRate, double maxSpeed, DoubleSupplier headingRads) {
+		double[] lastHeading = new double[1];
+		return runOnce(() -> lastHeading[0] = getState().Pose.getRotation().getRadians())
+			.andThen(applyRequest(() -> {
+				double heading = headingRads.getAsDouble();
+				if (Double.isFinite(heading)) {
+					lastHeading[0] = heading;
+				}
+				return m_facingAngle
+					.withRotationalDeadband(0)
+					.withTargetDirection(new Rotation2d(lastHeading[0]))
+					.withVelocityX(xRate.getAsDouble() * maxSpeed)
+					.withVelocityY(yRate.getAsDouble() * maxSpeed)
+					.withDeadband(maxSpeed * 0.1);
+			}))
+			.withName("FaceHeading");
+	}
+
+	/** Where {@link #faceSpeakerTag} and {@link #faceSpeakerTagAuton} get the speaker yaw from */
+	public void setSpeakerTargetEstimator(SpeakerTargetEstimator estimator) {
+		m_speakerTarget = estimator;
+	}
+
+	/** Samples the speaker target for the heading controllers, each time they run */
+	private void sampleSpeakerYaw() {
+		if (m_speakerTarget == null) {
+			m_hasVisionYaw = false;
+			return;
+		}
+		var target = m_speakerTarget.sample(Timer.getFPGATimestamp());
+		m_hasVisionYaw = target.valid();
+		if (target.valid()) {
+			var yawErr = target.bearingRads();
 			log_yawErrOpt.accept(Units.radiansToDegrees(yawErr));
-			m_hasVisionYaw = true;
-			m_visYawTimer.restart();
+			log_speakerYawPose.accept(target.xMeters(), target.yMeters(), target.headingRads());
 			m_visionYaw = Radians.of(yawErr);
-			log_desiredPose.accept(getState().Pose.rotateBy(Rotation2d.fromRadians(yawErr)));
+			m_visionYawRateRadps = target.bearingRateRadps();
+			// same as Pose.rotateBy(yawErr), without building the intermediate geometry
+			double cos = Math.cos(yawErr);
+			double sin = Math.sin(yawErr);
+			log_desiredPose.accept(
+				target.xMeters() * cos - target.yMeters() * sin,
+				target.xMeters() * sin + target.yMeters() * cos,
+				MathUtil.angleModulus(target.headingRads() + yawErr));
 		}
-		m_hasVisionYaw = tagsPresent && !m_visYawTimer.hasElapsed(0.1);
 		log_yawErr.accept(m_visionYaw.in(Degrees));
 	}
 
+	/**
+	 * @param timestampSecs FPGA time
+	 * @return the fused pose at that time, if it is still in the history
+	 */
+	public Optional<Pose2d> getPoseAt(double timestampSecs) {
+		return m_poseHistory.getSample(timestampSecs);
+	}
+
 	public Command applyRequest(Supplier<SwerveRequest> requestSupplier) {
 		return run(() -> setControl(requestSupplier.get()));
 	}
@@ -350,9 +497,9 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 	}
 
 	public void logModulePositions() {
+		m_moduleSignals.refresh();
 		for (int i = 0; i < Modules.length; i++) {
-			SmartDashboard.putNumber("Module " + i + "/position",
-				getModule(i).getDriveMotor().getPosition().getValueAsDouble());
+			SmartDashboard.putNumber("Module " + i + "/position", m_drivePositions[i].getValueAsDouble());
 		}
 	}
 
@@ -490,7 +637,9 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 	}
 
 	public void periodic() {
+		m_loopTiming.start();
 		var swerveState = getState();
+		m_poseHistory.addSample(Timer.getFPGATimestamp(), swerveState.Pose);
 		log_rotationSpeed.accept(Units.radiansToRotations(swerveState.speeds.omegaRadiansPerSecond));
 		log_desiredRot.accept(m_desiredRot.getDegrees());
 		log_rot.accept(swerveState.Pose.getRotation().getDegrees());
@@ -510,5 +659,6 @@ private final SysIdSwerveTranslation characterization = new SysIdSwerveTranslati
 		log_hasYaw.accept(m_hasVisionYaw);
 
 		log_pigeonYaw.accept(m_pigeon2.getAngle() % 360);
+		m_loopTiming.stop();
 	}
 }
@@ -1,7 +1,9 @@
 package frc.robot.subsystems.shooter;
 
 import com.ctre.phoenix6.SignalLogger;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.Utils;
+import com.ctre.phoenix6.configs.Slot0Configs;
 import com.ctre.phoenix6.controls.CoastOut;
 import com.ctre.phoenix6.controls.DynamicMotionMagicVoltage;
 import com.ctre.phoenix6.controls.StaticBrake;
@@ -11,7 +13,7 @@ import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
@@ -42,10 +44,16 @@ import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.Constants.FieldK;
 import frc.robot.Constants.RobotK;
 import frc.robot.Constants.AimK.AimConfigs;
-import frc.robot.Vision.VisionMeasurement3d;
+import frc.robot.SpeakerTargetEstimator;
 import frc.util.AllianceFlipUtil;
+import frc.util.AsyncConsole;
+import frc.util.CanBusManager;
+import frc.util.FlightRecorder;
+import frc.util.LoopProfiler;
+import frc.util.SignalGroup;
 import frc.util.WaltRangeChecker;
 import frc.util.logging.LoggedTunableNumber;
+import frc.util.logging.TunableGroup;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.*;
 
@@ -55,16 +63,32 @@ import static frc.robot.Constants.AimK.*;
 import static frc.robot.Constants.AimK.AimConfigs.*;
 import static frc.robot.Constants.RobotK.kSimInterval;
 import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 public class Aim extends SubsystemBase {
+    private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Aim/periodic");
     private final TalonFX m_motor = new TalonFX(kAimId, kCanbus);
     private final CANcoder m_cancoder = new CANcoder(15, kCanbus);
     private final DigitalInput m_coastSwitch = new DigitalInput(kCoastSwitchId);
 
+    private final SignalGroup m_signals = new SignalGroup("Aim");
+    private final StatusSignal<Double> m_position = m_signals.add(m_motor.getPosition());
+    private final StatusSignal<Double> m_velocity = m_signals.add(m_motor.getVelocity());
+    private final StatusSignal<Double> m_dutyCycle = m_signals.add(m_motor.getDutyCycle());
+    private final StatusSignal<Double> m_reference = m_signals.add(m_motor.getClosedLoopReference());
+    private final StatusSignal<Double> m_closedLoopOutput = m_signals.add(m_motor.getClosedLoopOutput());
+    private final StatusSignal<Double> m_feedforward = m_signals.add(m_motor.getClosedLoopFeedForward());
+    private final StatusSignal<Double> m_statorCurrent = m_signals.add(m_motor.getStatorCurrent());
+    private final StatusSignal<Double> m_supplyCurrent = m_signals.add(m_motor.getSupplyCurrent());
+    private final StatusSignal<Double> m_torqueCurrent = m_signals.add(m_motor.getTorqueCurrent());
+    private final StatusSignal<Double> m_cancoderPosition = m_signals.add(m_cancoder.getPosition());
+    /** Motor position at the start of this loop, latency compensated with velocity, in rotations */
+    private double m_positionRots = 0;
+
     private final Trigger trg_coastSwitch = new Trigger(m_coastSwitch::get);
     private final Trigger trg_autonAngleOk = new Trigger(() -> 
-        MathUtil.isNear(kSubwooferAngle.plus(Degrees.of(5)).in(Rotations), m_motor.getPosition().getValueAsDouble(), Units.degreesToRotations(1))
+        MathUtil.isNear(kSubwooferAngle.plus(Degrees.of(5)).in(Rotations), m_positionRots, Units.degreesToRotations(1))
         && RobotK.kStopCoast);
 
     public final DynamicMotionMagicVoltage m_dynamicRequest = new DynamicMotionMagicVoltage(0, 20, 40, 200);
@@ -72,7 +96,8 @@ public class Aim extends SubsystemBase {
     private final StaticBrake m_brakeRequest = new StaticBrake();
 
     private final LoggedTunableNumber m_tunableTest = new LoggedTunableNumber("tunableTest");
-    private double m_tunableNumber = 0;
+    private final TunableGroup m_slot0Tunables;
+    private final LoggedTunableNumber m_slot0kP, m_slot0kI, m_slot0kS, m_slot0kV, m_slot0kA;
     private final DoubleLogger log_tunableTest = WaltLogger.logDouble("Test", "tunableTest");
 
     private final DCMotor m_aimGearbox = DCMotor.getFalcon500(1);
@@ -92,15 +117,17 @@ public class Aim extends SubsystemBase {
 
     private Measure<Angle> m_targetAngle = Rotations.of(0);
 
-    private final LinearFilter m_filter = LinearFilter.singlePoleIIR(0.06, 0.02);
+    private final AsyncConsole.Channel m_reachedPrint = AsyncConsole.channel(0.1);
+
+    private final SpeakerTargetEstimator m_speakerTarget;
+    private final ShotMap m_shotMap;
+    private long m_lastMeasurementCount = 0;
 
     private double m_pitchToSpeaker = 0;
 
     private boolean m_isCoast;
     private boolean m_usingVision = false;
 
-    private Translation3d m_centerPos;
-
 
     private final DoubleLogger log_targetAngle = WaltLogger.logDouble(kDbTabName, "targetAngle");
     private final DoubleLogger log_motorSpeed = WaltLogger.logDouble(kDbTabName, "motorSpeed");
@@ -124,6 +151,10 @@ public class Aim extends SubsystemBase {
     private final Pose3dLogger log_pivotPos = WaltLogger.logPose3d(kDbTabName, "pivotPos");
     private final Pose3dLogger log_speakerPos = WaltLogger.logPose3d(kDbTabName, "speakerPos");
     private final DoubleLogger log_desiredPitch = WaltLogger.logDouble(kDbTabName, "desiredPitch");
+    /** The fused pose each desiredPitch sample was computed from, for replay */
+    private final Pose2dLogger log_speakerPitchPose = WaltLogger.logPose2d(kDbTabName, "speakerPitchPose");
+    /** The range rate each desiredPitch sample led the range by, for replay */
+    private final DoubleLogger log_speakerRangeRate = WaltLogger.logDouble(kDbTabName, "speakerRangeRate");
 
     private final DoubleLogger log_zDist = WaltLogger.logDouble(kDbTabName, "zDist");
     private final DoubleLogger log_xDist = WaltLogger.logDouble(kDbTabName, "xDist");
@@ -151,10 +182,28 @@ public class Aim extends SubsystemBase {
             m_motor.setControl(m_voltage.withOutput(volts.in(Volts)));
         }, null, this));
 
-    public Aim() {
+    public Aim(SpeakerTargetEstimator speakerTarget, ShotMap shotMap) {
+        m_speakerTarget = speakerTarget;
+        m_shotMap = shotMap;
         m_motor.getConfigurator().apply(motorConfig);
         m_cancoder.getConfigurator().apply(cancoderConfig);
 
+        CanBusManager.require("Aim", m_motor, 100, m_position, m_velocity);
+        CanBusManager.require("Aim", m_motor, 50, m_dutyCycle, m_reference, m_closedLoopOutput, m_feedforward,
+            m_statorCurrent, m_supplyCurrent, m_torqueCurrent);
+        // for SysId, which only sees it through SignalLogger
+        CanBusManager.require("Aim", m_motor, 50, m_motor.getMotorVoltage());
+        // the motor fuses the CANcoder, so it reads these straight off the bus
+        CanBusManager.require("AimCancoder", m_cancoder, 100, m_cancoderPosition, m_cancoder.getVelocity());
+        CanBusManager.require("AimCancoder", m_cancoder, 4, m_cancoder.getAbsolutePosition());
+
+        m_slot0Tunables = new TunableGroup("Aim/Slot0", this::applySlot0Gains);
+        m_slot0kP = m_slot0Tunables.add("kP", motorConfig.Slot0.kP);
+        m_slot0kI = m_slot0Tunables.add("kI", motorConfig.Slot0.kI);
+        m_slot0kS = m_slot0Tunables.add("kS", motorConfig.Slot0.kS);
+        m_slot0kV = m_slot0Tunables.add("kV", motorConfig.Slot0.kV);
+        m_slot0kA = m_slot0Tunables.add("kA", motorConfig.Slot0.kA);
+
         SmartDashboard.putData("Mech2d", m_mech2d);
 
         if (Utils.isSimulation()) {
@@ -173,16 +222,36 @@ public class Aim extends SubsystemBase {
 
         WaltRangeChecker.addDoubleChecker("DesiredPitch", () -> m_pitchToSpeaker, 0, kSubwooferAngle.in(Radians), 1, false);
 
+        // cached values, refreshed with the rest of m_signals in periodic()
+        FlightRecorder.addChannel("Aim/position", m_position);
+        FlightRecorder.addChannel("Aim/statorCurrent", m_statorCurrent);
+        FlightRecorder.addChannel("Aim/targetAngle", this::getTargetAngle);
+        FlightRecorder.addChannel("Aim/pitchToSpeaker", () -> m_pitchToSpeaker);
+
         m_measurementTimer.reset();
     }
 
+    /** Runs on the tunable applier thread, so the blocking config apply never stalls the loop */
+    private void applySlot0Gains(TunableGroup group) {
+        var slot0 = new Slot0Configs()
+            .withKP(m_slot0kP.get())
+            .withKI(m_slot0kI.get())
+            .withKS(m_slot0kS.get())
+            .withKV(m_slot0kV.get())
+            .withKA(m_slot0kA.get());
+        var status = m_motor.getConfigurator().apply(slot0);
+        if (!status.isOK()) {
+            System.out.println("[AIM] Slot0 gain apply failed: " + status);
+        }
+    }
+
     private void determineMotionMagicValues(boolean vision) {
-        if (vision && MathUtil.isNear(m_targetAngle.in(Rotations), m_motor.getPosition().getValueAsDouble(), Units.degreesToRotations(2))) {
+        if (vision && MathUtil.isNear(m_targetAngle.in(Rotations), m_positionRots, Units.degreesToRotations(2))) {
             m_dynamicRequest.Velocity = 0.1;
             m_dynamicRequest.Acceleration = 0.5;
             m_dynamicRequest.Jerk = 7.5;
             m_dynamicRequest.Slot = 0;
-        } else if (m_targetAngle.lt(Rotations.of(m_motor.getPosition().getValueAsDouble())) && m_motor.getPosition().getValueAsDouble() <= 0.2) {
+        } else if (m_targetAngle.lt(Rotations.of(m_positionRots)) && m_positionRots <= 0.2) {
             m_dynamicRequest.Velocity = 0.3;
             m_dynamicRequest.Acceleration = 0.75;
             m_dynamicRequest.Jerk = 0;
@@ -196,11 +265,11 @@ public class Aim extends SubsystemBase {
     }
 
     public Measure<Angle> getAngle() {
-        return Rotations.of(m_motor.getPosition().getValueAsDouble());
+        return Rotations.of(m_positionRots);
     }
 
     private double getDegrees() {
-        return Units.rotationsToDegrees(m_motor.getPosition().getValueAsDouble()) + 28;
+        return Units.rotationsToDegrees(m_positionRots) + kLaunchOffset.in(Degrees);
     }
 
     public BooleanSupplier aimFinished() {
@@ -208,7 +277,7 @@ public class Aim extends SubsystemBase {
             if ((m_targetAngle.in(Degrees) == 0 || m_targetAngle.in(Degrees) == 4) && !DriverStation.isAutonomous() && !m_usingVision) {
                 return false;
             }
-            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_motor.getPosition().getValueAsDouble()));
+            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_positionRots));
             log_error.accept(error.in(Degrees));
 
             if (m_targetAngle.baseUnitMagnitude() == kAmpAngle.baseUnitMagnitude()) {
@@ -221,7 +290,7 @@ public class Aim extends SubsystemBase {
 
     public BooleanSupplier aimFinished(double tolerance) {
         return () -> {
-            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_motor.getPosition().getValueAsDouble()));
+            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_positionRots));
             log_error.accept(error.in(Degrees));
 
             return error.lte(m_targetAngle.times(tolerance));
@@ -286,6 +355,24 @@ public class Aim extends SubsystemBase {
         }).withName("AimWithVision");
     }
 
+    /**
+     * Like {@link #aim()}, but at the shot map pitch for a distance that can change every loop.
+     * NaN distances hold the last angle.
+     */
+    public Command aimForDistance(DoubleSupplier distanceMeters) {
+        return runEnd(() -> {
+            m_usingVision = true;
+            double distance = distanceMeters.getAsDouble();
+            if (Double.isFinite(distance)) {
+                m_targetAngle = Radians.of(m_shotMap.pitchRads(distance));
+            }
+            sendAngleRequestToMotor(true);
+        }, () -> {
+            m_usingVision = false;
+            m_motor.setControl(m_brakeRequest);
+        }).withName("AimForDistance");
+    }
+
     public Command toAngleUntilAt(Supplier<Measure<Angle>> angle, Measure<Angle> tolerance) {
        return toAngleUntilAt(angle, tolerance, false);
     }
@@ -299,13 +386,13 @@ public class Aim extends SubsystemBase {
             sendAngleRequestToMotor(false);
         };
         BooleanSupplier isFinished = () -> {
-            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_motor.getPosition().getValueAsDouble()));
+            var error = Rotations.of(Math.abs(m_targetAngle.in(Rotations) - m_positionRots));
             log_error.accept(error.in(Degrees));
 
             boolean imThere = error.lte(tolerance);
             if (imThere) {
                 m_targetTimer.stop();
-                System.out.println("[AIM] Reached target in " + m_targetTimer.get() + " seconds");
+                m_reachedPrint.print("[AIM] Reached target in ", m_targetTimer.get(), " seconds");
                 m_targetTimer.reset();
             }
             return imThere;
@@ -361,57 +448,98 @@ public class Aim extends SubsystemBase {
         });
     }
 
-    public void calculatePitchToSpeaker(VisionMeasurement3d meas) {
+    /**
+     * Samples the speaker target every loop rather than only on new frames, and takes the pitch for
+     * the range a loop from now from the shot map
+     */
+    private void samplePitchToSpeaker() {
+        var target = m_speakerTarget.sample(Timer.getFPGATimestamp());
+        if (!target.valid()) return;
+        m_pitchToSpeaker = m_shotMap.pitchRads(target.rangeMetersIn(kPitchLeadSecs));
+        log_desiredPitch.accept(Units.radiansToDegrees(m_pitchToSpeaker));
+        log_speakerPitchPose.accept(target.xMeters(), target.yMeters(), target.headingRads());
+        log_speakerRangeRate.accept(target.rangeRateMps());
+
+        long count = m_speakerTarget.getMeasurementCount();
+        if (count == m_lastMeasurementCount) return;
+        m_lastMeasurementCount = count;
         m_measurementTimer.restart();
 
-        var pose = meas.estimate().estimatedPose;
+        // same as new Pose3d(pose).transformBy(kOriginToPivot), without building the geometry
+        double heading = target.headingRads();
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double pivotX = target.xMeters() + kOriginToPivot.getX() * cos - kOriginToPivot.getY() * sin;
+        double pivotY = target.yMeters() + kOriginToPivot.getX() * sin + kOriginToPivot.getY() * cos;
+        double pivotZ = kOriginToPivot.getZ();
+        var speakerPos = speakerAimPoint(target.xMeters(), target.yMeters(), AllianceFlipUtil.shouldFlip());
+        log_speakerPos.accept(speakerPos.getX(), speakerPos.getY(), speakerPos.getZ());
+        log_pivotPos.accept(pivotX, pivotY, pivotZ, Math.cos(heading / 2), 0, 0, Math.sin(heading / 2));
+        log_zDist.accept(Units.metersToInches(speakerPos.getZ() - pivotZ));
+        log_xDist.accept(Units.metersToInches(speakerPos.getX() - pivotX));
+    }
 
-        var pivotPose = pose.transformBy(kOriginToPivot);
-        var pivotTrans = pivotPose.getTranslation();
+    private static final Translation3d kBlueAimCenter =
+        FieldK.SpeakerK.kBlueCenterOpening.minus(new Translation3d(0, 0, Units.inchesToMeters(2)));
+    private static final Translation3d kBlueAimCenterFar =
+        kBlueAimCenter.minus(new Translation3d(0, 0, Units.inchesToMeters(5)));
+    private static final Translation3d kRedAimCenter = AllianceFlipUtil.flip(kBlueAimCenter);
+    private static final Translation3d kRedAimCenterFar = AllianceFlipUtil.flip(kBlueAimCenterFar);
+    private static final Translation3d kRedTopRight = AllianceFlipUtil.flip(FieldK.SpeakerK.kTopRight);
+    private static final Translation3d kRedTopLeft = AllianceFlipUtil.flip(FieldK.SpeakerK.kTopLeft);
+
+    /**
+     * Picks the point in the speaker to aim at for a robot at the given pose.
+     * Pure, so log replay and benchmarks can drive it without an Aim instance.
+     * @param pose - Estimated robot pose
+     * @param red - Whether we are on the red alliance
+     */
+    public static Translation3d speakerAimPoint(Pose3d pose, boolean red) {
+        return speakerAimPoint(pose.getX(), pose.getY(), red);
+    }
 
-        Translation3d speakerPos;
-        m_centerPos = AllianceFlipUtil.apply(FieldK.SpeakerK.kBlueCenterOpening.minus(new Translation3d(0, 0, Units.inchesToMeters(2))));
-        
-        if (MathUtil.isNear(m_centerPos.getY(), pose.getY(), 1)) {
-            speakerPos = m_centerPos;
-            if ((AllianceFlipUtil.apply(pose.getX()) > 3.5)) {
-                speakerPos = speakerPos.minus(new Translation3d(0, 0, Units.inchesToMeters(5)));
+    /**
+     * Like {@link #speakerAimPoint(Pose3d, boolean)}, for a robot at (x, y). Every aim point is
+     * precomputed, so this does not allocate.
+     */
+    public static Translation3d speakerAimPoint(double xMeters, double yMeters, boolean red) {
+        var centerPos = red ? kRedAimCenter : kBlueAimCenter;
+
+        if (MathUtil.isNear(centerPos.getY(), yMeters, 1)) {
+            double allianceX = red ? AllianceFlipUtil.flip(xMeters) : xMeters;
+            if (allianceX > 3.5) {
+                return red ? kRedAimCenterFar : kBlueAimCenterFar;
             }
-        } else if (pose.getY() < m_centerPos.getY()) {
-            speakerPos = AllianceFlipUtil.apply(FieldK.SpeakerK.kTopRight);
+            return centerPos;
+        } else if (yMeters < centerPos.getY()) {
+            return red ? kRedTopRight : FieldK.SpeakerK.kTopRight;
         } else {
-            speakerPos = AllianceFlipUtil.apply(FieldK.SpeakerK.kTopLeft);
+            return red ? kRedTopLeft : FieldK.SpeakerK.kTopLeft;
         }
-
-        var distance = speakerPos.minus(pivotTrans);
-        log_speakerPos.accept(speakerPos);
-        log_pivotPos.accept(pivotPose);
-
-        log_zDist.accept(Units.metersToInches(distance.getZ()));
-        log_xDist.accept(Units.metersToInches(distance.getX()));
-
-        m_pitchToSpeaker = (m_filter.calculate(Math.atan2(distance.getZ(), Math.hypot(distance.getX(), distance.getY()))) - Units.degreesToRadians(28));
-        log_desiredPitch.accept(Units.radiansToDegrees(m_pitchToSpeaker));
     }
 
     @Override
     public void periodic() {
+        m_loopTiming.start();
+        m_signals.refresh();
+        m_positionRots = SignalGroup.compensated(m_position, m_velocity);
+        samplePitchToSpeaker();
         determineMotionMagicValues(m_usingVision);
         log_measTimer.accept(m_measurementTimer.get());
 
         log_autonAngleOk.accept(trg_autonAngleOk.getAsBoolean());
-        log_motorSpeed.accept(m_motor.get());
-        log_motorPos.accept(Units.rotationsToDegrees(m_motor.getPosition().getValueAsDouble()));
+        log_motorSpeed.accept(m_dutyCycle.getValueAsDouble());
+        log_motorPos.accept(Units.rotationsToDegrees(m_positionRots));
         log_targetAngle.accept(getTargetAngle());
-        log_cancoderPos.accept(Units.rotationsToDegrees(m_cancoder.getPosition().getValueAsDouble()));
+        log_cancoderPos.accept(Units.rotationsToDegrees(m_cancoderPosition.getValueAsDouble()));
 
-        log_reference.accept(Units.rotationsToDegrees(m_motor.getClosedLoopReference().getValueAsDouble()));
-        log_output.accept(m_motor.getClosedLoopOutput().getValueAsDouble());
-        log_ff.accept(m_motor.getClosedLoopFeedForward().getValueAsDouble());
+        log_reference.accept(Units.rotationsToDegrees(m_reference.getValueAsDouble()));
+        log_output.accept(m_closedLoopOutput.getValueAsDouble());
+        log_ff.accept(m_feedforward.getValueAsDouble());
 
-        log_statorCurrent.accept(m_motor.getStatorCurrent().getValueAsDouble());
-        log_supplyCurrent.accept(m_motor.getSupplyCurrent().getValueAsDouble());
-        log_tqCurrent.accept(m_motor.getTorqueCurrent().getValueAsDouble());
+        log_statorCurrent.accept(m_statorCurrent.getValueAsDouble());
+        log_supplyCurrent.accept(m_supplyCurrent.getValueAsDouble());
+        log_tqCurrent.accept(m_torqueCurrent.getValueAsDouble());
 
         boolean dashCoast = nte_isCoast.getBoolean(false);
         if (dashCoast != m_isCoast && !trg_coastSwitch.getAsBoolean()) {
@@ -419,12 +547,12 @@ public class Aim extends SubsystemBase {
             setCoast(m_isCoast);
         }
 
-        if (m_tunableNumber != m_tunableTest.get()) {
-            m_tunableNumber = m_tunableTest.get();
-            log_tunableTest.accept(m_tunableNumber);
+        if (m_tunableTest.hasChanged()) {
+            log_tunableTest.accept(m_tunableTest.get());
         }
 
         log_coastSwitch.accept(trg_coastSwitch);
+        m_loopTiming.stop();
     }
 
     @Override
@@ -445,7 +573,7 @@ public class Aim extends SubsystemBase {
         m_cancoder.getSimState().setVelocity(velocity * 1.69);
 
         m_aim2d.setAngle(Units.rotationsToDegrees(
-            m_motor.getPosition().getValueAsDouble())); // TODO: make this render correctly with the real robot too
+            m_positionRots)); // TODO: make this render correctly with the real robot too
 
         log_simVoltage.accept(volts);
         log_simVelo.accept(m_aimSim.getVelocityRadPerSec());
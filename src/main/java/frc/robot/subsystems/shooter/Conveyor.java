@@ -9,11 +9,13 @@ import edu.wpi.first.networktables.PubSubOption;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.util.LoopProfiler;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.BooleanLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
 
 public class Conveyor extends SubsystemBase {
+    private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Conveyor/periodic");
     private final CANSparkMax m_conveyor = new CANSparkMax(kConveyorId, MotorType.kBrushless);
 
     private final DoubleLogger log_statorCurrent = WaltLogger.logDouble("Conveyor", "statorCurrent");
@@ -68,9 +70,11 @@ public class Conveyor extends SubsystemBase {
 
     @Override
     public void periodic() {
+        m_loopTiming.start();
         log_statorCurrent.accept(m_conveyor.getOutputCurrent());
         log_outputVoltage.accept(m_conveyor.getAppliedOutput());
         log_supplyVoltage.accept(m_conveyor.getBusVoltage());
         log_currentSpike.accept(trg_currentSpike);
+        m_loopTiming.stop();
     }
 }
@@ -4,6 +4,7 @@ import static frc.robot.Constants.RobotK.kSimInterval;
 import static frc.robot.Constants.ShooterK.*;
 
 import com.ctre.phoenix6.SignalLogger;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.controls.CoastOut;
 import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
@@ -21,6 +22,11 @@ import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.Constants.ShooterK.ShooterConfigs;
+import frc.util.AsyncConsole;
+import frc.util.CanBusManager;
+import frc.util.FlightRecorder;
+import frc.util.LoopProfiler;
+import frc.util.SignalGroup;
 import frc.util.logging.WaltLogger;
 import frc.util.logging.WaltLogger.BooleanLogger;
 import frc.util.logging.WaltLogger.DoubleLogger;
@@ -31,15 +37,25 @@ import static frc.robot.Constants.RotationsPerMinute;
 import static frc.robot.Constants.kCanbus;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 public class Shooter extends SubsystemBase {
+    private final LoopProfiler.Section m_loopTiming = LoopProfiler.section("Shooter/periodic");
     private final TalonFX m_left = new TalonFX(kLeftId, kCanbus);
     private final TalonFX m_right = new TalonFX(kRightId, kCanbus);
+
+    private final SignalGroup m_signals = new SignalGroup("Shooter");
+    private final StatusSignal<Double> m_leftError = m_signals.add(m_left.getClosedLoopError());
+    private final StatusSignal<Double> m_rightError = m_signals.add(m_right.getClosedLoopError());
+    private final StatusSignal<Double> m_leftReference = m_signals.add(m_left.getClosedLoopReference());
+    private final StatusSignal<Double> m_rightReference = m_signals.add(m_right.getClosedLoopReference());
+
     private final VelocityVoltage m_request = new VelocityVoltage(0);
     private final VoltageOut m_voltage = new VoltageOut(0);
     private final CoastOut m_coast = new CoastOut();
 
+    private final ShotMap m_shotMap;
     private double m_spinAmt = kSpinAmt;
     private double m_shotTime = 1.5;
 
@@ -49,6 +65,7 @@ public class Shooter extends SubsystemBase {
     // unused thing was bothering me.
     // private final Supplier<Measure<Velocity<Angle>>> m_rightTargetSupp = () ->
     // m_rightTarget;
+    private final AsyncConsole.Channel m_stoppedPrint = AsyncConsole.channel(0.1);
     private boolean m_spunUp = false;
     private boolean m_leftOk = false;
     private boolean m_rightOk = false;
@@ -107,10 +124,22 @@ public class Shooter extends SubsystemBase {
     // return new SysIdRoutine(cfg, mech);
     // }
 
-    public Shooter() {
+    public Shooter(ShotMap shotMap) {
+        m_shotMap = shotMap;
         m_right.getConfigurator().apply(ShooterConfigs.kRightConfigs);
         m_left.getConfigurator().apply(ShooterConfigs.kLeftConfigs);
         m_left.setInverted(true);
+
+        CanBusManager.require("ShooterLeft", m_left, 50, m_leftError, m_leftReference);
+        CanBusManager.require("ShooterRight", m_right, 50, m_rightError, m_rightReference);
+        // for SysId, which only sees them through SignalLogger
+        CanBusManager.require("ShooterLeft", m_left, 50, m_left.getPosition(), m_left.getVelocity(), m_left.getMotorVoltage());
+        CanBusManager.require("ShooterRight", m_right, 50, m_right.getPosition(), m_right.getVelocity(), m_right.getMotorVoltage());
+
+        // cached values, refreshed with the rest of m_signals in periodic()
+        FlightRecorder.addChannel("Shooter/leftError", m_leftError);
+        FlightRecorder.addChannel("Shooter/rightError", m_rightError);
+        FlightRecorder.addChannel("Shooter/leftTarget", () -> m_leftTarget.in(RotationsPerSecond));
     }
 
     public Command stop() {
@@ -121,10 +150,33 @@ public class Shooter extends SubsystemBase {
     }
 
 
+    /** The four possible toVelo stop messages, built once */
+    private static final String[] kStoppedMessages = {
+        "toVelo STOPPED. int: false, auton: false",
+        "toVelo STOPPED. int: false, auton: true",
+        "toVelo STOPPED. int: true, auton: false",
+        "toVelo STOPPED. int: true, auton: true"
+    };
+
+    private static String stoppedMessage(boolean interrupted, boolean isAuton) {
+        return kStoppedMessages[(interrupted ? 2 : 0) + (isAuton ? 1 : 0)];
+    }
+
+    /** How every spin-up command ends: command zero on its slot, then let the flywheels coast */
+    private void stopSpin(boolean interrupted, boolean isAuton, int slot) {
+        m_stoppedPrint.print(stoppedMessage(interrupted, isAuton));
+        m_rightTarget = RotationsPerSecond.of(0);
+        m_leftTarget = RotationsPerSecond.of(0);
+        m_right.setControl(m_request.withVelocity(0).withSlot(slot));
+        m_left.setControl(m_request.withVelocity(0).withSlot(slot));
+        m_right.setControl(m_coast);
+        m_left.setControl(m_coast);
+    }
+
     public Command toVelo(Supplier<Measure<Velocity<Angle>>> velo, BooleanSupplier idle) {
         Runnable spin = () -> {
             var velMeas = velo.get();
-            m_rightTarget = velMeas.times(0.6);
+            m_rightTarget = velMeas.times(kVeloSpinRatio);
             m_leftTarget = velMeas;
             var right = m_rightTarget.in(RotationsPerSecond);
             var left = m_leftTarget.in(RotationsPerSecond);
@@ -134,16 +186,7 @@ public class Shooter extends SubsystemBase {
             m_left.setControl(m_request.withVelocity(left).withSlot(0));
         };
 
-        Consumer<Boolean> stopSpin = (interrupted) -> {
-            boolean isAuton = !idle.getAsBoolean();
-            System.out.println("toVelo STOPPED. int: " + interrupted + ", auton: " + isAuton);
-            m_rightTarget = RotationsPerSecond.of(0);
-            m_leftTarget = RotationsPerSecond.of(0);
-            m_right.setControl(m_request.withVelocity(0).withSlot(0));
-            m_left.setControl(m_request.withVelocity(0).withSlot(0));
-            m_right.setControl(m_coast);
-            m_left.setControl(m_coast);
-        };
+        Consumer<Boolean> stopSpin = (interrupted) -> stopSpin(interrupted, !idle.getAsBoolean(), 0);
 
         return new FunctionalCommand(spin, () -> {}, stopSpin, idle, this)
             .withName("ShooterToVelo");
@@ -165,16 +208,7 @@ public class Shooter extends SubsystemBase {
             m_left.setControl(m_request.withVelocity(left).withSlot(slot));
         };
 
-        Consumer<Boolean> stopSpin = (interrupted) -> {
-            boolean isAuton = !idle.getAsBoolean();
-            System.out.println("toVelo STOPPED. int: " + interrupted + ", auton: " + isAuton);
-            m_rightTarget = RotationsPerSecond.of(0);
-            m_leftTarget = RotationsPerSecond.of(0);
-            m_right.setControl(m_request.withVelocity(0).withSlot(slot));
-            m_left.setControl(m_request.withVelocity(0).withSlot(slot));
-            m_right.setControl(m_coast);
-            m_left.setControl(m_coast);
-        };
+        Consumer<Boolean> stopSpin = (interrupted) -> stopSpin(interrupted, !idle.getAsBoolean(), slot);
 
         return new FunctionalCommand(spin, () -> {}, stopSpin, idle, this)
             .withName("ShooterToVelo");
@@ -209,7 +243,43 @@ public class Shooter extends SubsystemBase {
     }
 
     public Command farShot() {
-        return toVelo(() -> RotationsPerMinute.of(6000), () -> false).withName("ShooterToVelo_FarShotTele");
+        return toVelo(() -> RotationsPerMinute.of(kFarShotRpm), () -> false).withName("ShooterToVelo_FarShotTele");
+    }
+
+    /**
+     * Spins up for a shot from wherever the robot is, following the shot map every loop as the
+     * distance changes. Until the first distance comes in it holds {@link #farShot()}'s setpoint,
+     * so the button behaves as it did before there was a map.
+     * @param distanceMeters distance to the speaker, NaN if unknown to keep the last shot
+     */
+    public Command mappedShot(DoubleSupplier distanceMeters) {
+        double[] lastDistance = new double[1];
+        Runnable spin = () -> {
+            double distance = distanceMeters.getAsDouble();
+            if (Double.isFinite(distance)) {
+                lastDistance[0] = distance;
+            }
+            double left;
+            double right;
+            if (Double.isNaN(lastDistance[0])) {
+                left = kFarShotRpm;
+                right = left * kVeloSpinRatio;
+            } else {
+                left = m_shotMap.leftRpm(lastDistance[0]);
+                right = left * m_shotMap.spinRatio(lastDistance[0]);
+            }
+            m_leftTarget = RotationsPerMinute.of(left);
+            m_rightTarget = RotationsPerMinute.of(right);
+
+            m_right.setControl(m_request.withVelocity(right / 60).withSlot(0));
+            m_left.setControl(m_request.withVelocity(left / 60).withSlot(0));
+        };
+
+        // same as toVelo with an idle that never ends it
+        Consumer<Boolean> stopSpin = (interrupted) -> stopSpin(interrupted, true, 0);
+
+        return new FunctionalCommand(() -> lastDistance[0] = Double.NaN, spin, stopSpin, () -> false, this)
+            .withName("ShooterToVelo_MappedShot");
     }
 
     public Command farShotNoSpin() {
@@ -252,8 +322,8 @@ public class Shooter extends SubsystemBase {
                 tolerance = leftMeas.gte(RotationsPerSecond.of(40)) ? kBigShootTolerance : kAmpTolerance;
             }
 
-            var leftCleMeas = RotationsPerSecond.of(m_left.getClosedLoopError().getValueAsDouble());
-            var rightCleMeas = RotationsPerSecond.of(m_right.getClosedLoopError().getValueAsDouble());
+            var leftCleMeas = RotationsPerSecond.of(m_leftError.getValueAsDouble());
+            var rightCleMeas = RotationsPerSecond.of(m_rightError.getValueAsDouble());
 
             m_leftOk = leftCleMeas.lte(tolerance);
             m_rightOk = rightCleMeas.lte(tolerance);
@@ -278,18 +348,21 @@ public class Shooter extends SubsystemBase {
     }
 
     public void periodic() {
+        m_loopTiming.start();
+        m_signals.refresh();
         log_leftTargetRpm.accept(m_leftTarget.in(RotationsPerMinute));
         log_rightTargetRpm.accept(m_rightTarget.in(RotationsPerMinute));
         log_spinAmt.accept(m_spinAmt);
         log_shotTime.accept(m_shotTime);
-        log_leftTarget.accept(m_left.getClosedLoopReference().getValueAsDouble());
-        log_rightTarget.accept(m_right.getClosedLoopReference().getValueAsDouble());
+        log_leftTarget.accept(m_leftReference.getValueAsDouble());
+        log_rightTarget.accept(m_rightReference.getValueAsDouble());
 
-        log_leftError.accept(m_left.getClosedLoopError().getValueAsDouble());
-        log_rightError.accept(m_right.getClosedLoopError().getValueAsDouble());
+        log_leftError.accept(m_leftError.getValueAsDouble());
+        log_rightError.accept(m_rightError.getValueAsDouble());
         log_spunUp.accept(m_spunUp);
         log_leftOk.accept(m_leftOk);
         log_rightOk.accept(m_rightOk);
+        m_loopTiming.stop();
     }
 
     public void simulationPeriodic() {
@@ -0,0 +1,210 @@
+package frc.robot.subsystems.shooter;
+
+import static frc.robot.Constants.AimK.kPodiumAngle;
+import static frc.robot.Constants.AimK.kSubwooferAngle;
+import static frc.robot.Constants.ShooterK.kPodiumRpm;
+import static frc.robot.Constants.ShooterK.kSubwooferRpm;
+import static frc.robot.Constants.ShooterK.kVeloSpinRatio;
+import static edu.wpi.first.units.Units.Radians;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Tuned shots by distance to the speaker: aim pitch, left flywheel RPM, right/left spin ratio and
+ * note time of flight, linearly interpolated between rows and clamped at the ends.
+ * <p>
+ * Rows live in sorted primitive arrays. Lookups first check the segment the last lookup landed in,
+ * since the distance barely moves between loops, and binary search otherwise.
+ */
+public class ShotMap {
+    /** Deployed to /home/lvuser/deploy on the robot */
+    public static final String kFileName = "shotmap.csv";
+    /** Average note speed used to guess time of flight when a map doesn't have it */
+    private static final double kFallbackNoteSpeed = 12.0; // m/s
+
+    private final double[] m_distances;
+    private final double[] m_pitchRads;
+    private final double[] m_leftRpms;
+    private final double[] m_spinRatios;
+    private final double[] m_flightSecs;
+    private final boolean m_hasFlightTimes;
+    private int m_lastSegment = 0;
+
+    /**
+     * @param distances speaker distances in meters, strictly increasing
+     * @param pitchRads aim angle for each distance, in radians
+     * @param leftRpms left flywheel RPM for each distance
+     * @param spinRatios right RPM over left RPM for each distance
+     * @param flightSecs note time of flight for each distance
+     */
+    public ShotMap(double[] distances, double[] pitchRads, double[] leftRpms, double[] spinRatios, double[] flightSecs) {
+        this(distances, pitchRads, leftRpms, spinRatios, flightSecs, true);
+    }
+
+    /** Same as the full constructor, guessing time of flight from distance */
+    public ShotMap(double[] distances, double[] pitchRads, double[] leftRpms, double[] spinRatios) {
+        this(distances, pitchRads, leftRpms, spinRatios, guessFlightSecs(distances), false);
+    }
+
+    private ShotMap(double[] distances, double[] pitchRads, double[] leftRpms, double[] spinRatios,
+        double[] flightSecs, boolean hasFlightTimes) {
+        int n = distances.length;
+        if (n < 2 || pitchRads.length != n || leftRpms.length != n || spinRatios.length != n
+            || flightSecs.length != n) {
+            throw new IllegalArgumentException("ShotMap: need at least 2 rows and equal column lengths");
+        }
+        for (int i = 1; i < n; i++) {
+            if (!(distances[i] > distances[i - 1])) {
+                throw new IllegalArgumentException("ShotMap: distances must be strictly increasing (row " + i + ")");
+            }
+        }
+        m_distances = distances.clone();
+        m_pitchRads = pitchRads.clone();
+        m_leftRpms = leftRpms.clone();
+        m_spinRatios = spinRatios.clone();
+        m_flightSecs = flightSecs.clone();
+        m_hasFlightTimes = hasFlightTimes;
+    }
+
+    private static double[] guessFlightSecs(double[] distances) {
+        var flightSecs = new double[distances.length];
+        for (int i = 0; i < distances.length; i++) {
+            flightSecs[i] = distances[i] / kFallbackNoteSpeed;
+        }
+        return flightSecs;
+    }
+
+    /**
+     * Parses {@code distanceMeters,pitchDegs,leftRpm,spinRatio[,flightSecs]} rows. Blank lines and
+     * lines starting with '#' are skipped; rows must already be sorted by distance, and either all
+     * or none of them have a time of flight.
+     */
+    public static ShotMap fromCsv(Path path) throws IOException {
+        var rows = new ArrayList<double[]>();
+        int lineNum = 0;
+        for (var line : Files.readAllLines(path)) {
+            lineNum++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            var cols = line.split(",");
+            int expected = rows.isEmpty() ? cols.length : rows.get(0).length;
+            if ((cols.length != 4 && cols.length != 5) || cols.length != expected) {
+                throw new IOException(path + ":" + lineNum + ": expected " + (rows.isEmpty() ? "4 or 5" : expected)
+                    + " columns, got " + cols.length);
+            }
+            var row = new double[cols.length];
+            try {
+                for (int i = 0; i < cols.length; i++) {
+                    row[i] = Double.parseDouble(cols[i].strip());
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(path + ":" + lineNum + ": " + e.getMessage(), e);
+            }
+            rows.add(row);
+        }
+
+        int n = rows.size();
+        var distances = new double[n];
+        var pitchRads = new double[n];
+        var leftRpms = new double[n];
+        var spinRatios = new double[n];
+        var flightSecs = new double[n];
+        boolean hasFlight = n > 0 && rows.get(0).length == 5;
+        for (int i = 0; i < n; i++) {
+            var row = rows.get(i);
+            distances[i] = row[0];
+            pitchRads[i] = Units.degreesToRadians(row[1]);
+            leftRpms[i] = row[2];
+            spinRatios[i] = row[3];
+            flightSecs[i] = hasFlight ? row[4] : 0;
+        }
+        try {
+            if (!hasFlight) {
+                return new ShotMap(distances, pitchRads, leftRpms, spinRatios);
+            }
+            return new ShotMap(distances, pitchRads, leftRpms, spinRatios, flightSecs);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads {@link #kFileName} from the deploy directory. If it is missing or broken, falls back to
+     * a two-row map through the subwoofer and podium presets so the robot can still shoot.
+     */
+    public static ShotMap loadDeployed() {
+        var path = Filesystem.getDeployDirectory().toPath().resolve(kFileName);
+        try {
+            return fromCsv(path);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("[SHOTMAP] failed to load " + path + ", using presets: " + e.getMessage());
+            return new ShotMap(
+                new double[] { 1.3, 2.9 },
+                new double[] { kSubwooferAngle.in(Radians), kPodiumAngle.in(Radians) },
+                new double[] { kSubwooferRpm, kPodiumRpm },
+                new double[] { kVeloSpinRatio, kVeloSpinRatio });
+        }
+    }
+
+    /** @return index i such that distance is in [m_distances[i], m_distances[i + 1]], clamped */
+    private int segment(double distance) {
+        int last = m_lastSegment;
+        if (distance >= m_distances[last] && distance <= m_distances[last + 1]) {
+            return last;
+        }
+        int idx = Arrays.binarySearch(m_distances, distance);
+        if (idx < 0) {
+            // insertion point, minus one for the row below
+            idx = -idx - 2;
+        }
+        idx = Math.max(0, Math.min(m_distances.length - 2, idx));
+        m_lastSegment = idx;
+        return idx;
+    }
+
+    private double interpolate(double[] column, double distance) {
+        int i = segment(distance);
+        double t = (distance - m_distances[i]) / (m_distances[i + 1] - m_distances[i]);
+        t = Math.max(0, Math.min(1, t));
+        return column[i] + (column[i + 1] - column[i]) * t;
+    }
+
+    /** @return aim angle for a shot from this far away, in radians */
+    public double pitchRads(double distanceMeters) {
+        return interpolate(m_pitchRads, distanceMeters);
+    }
+
+    public double leftRpm(double distanceMeters) {
+        return interpolate(m_leftRpms, distanceMeters);
+    }
+
+    /** @return right flywheel RPM over left flywheel RPM */
+    public double spinRatio(double distanceMeters) {
+        return interpolate(m_spinRatios, distanceMeters);
+    }
+
+    /** @return whether time of flight came from the map rather than being guessed from distance */
+    public boolean hasFlightTimes() {
+        return m_hasFlightTimes;
+    }
+
+    /** @return how long a note takes to reach the speaker from this far away, in seconds */
+    public double flightSecs(double distanceMeters) {
+        return interpolate(m_flightSecs, distanceMeters);
+    }
+
+    public double getMinDistance() {
+        return m_distances[0];
+    }
+
+    public double getMaxDistance() {
+        return m_distances[m_distances.length - 1];
+    }
+}
@@ -0,0 +1,186 @@
+package frc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * Console output that never blocks the caller. Messages go into a preallocated ring, claimed with
+ * a single CAS like {@link frc.util.logging.LogPipeline}, and a low-priority thread formats and
+ * prints them; if the ring is full the message is dropped and counted. No lock is shared with the
+ * printer, so a preempted printer can't hold up the robot loop.
+ * <p>
+ * Loop-rate diagnostics should use a {@link Channel}, one per print site, which rate-limits and takes the
+ * value separately from its text so nothing is formatted (or allocated) on the caller's thread.
+ * Messages a channel suppresses are summarized the next time it prints.
+ */
+public final class AsyncConsole {
+    private AsyncConsole() {
+    }
+
+    /** Must be a power of two */
+    private static final int kCapacity = 256;
+    private static final int kMask = kCapacity - 1;
+    private static final long kIdleParkNanos = 20_000_000;
+
+    // one slot is prefix + optional value + optional suffix
+    private static final String[] m_prefixes = new String[kCapacity];
+    private static final String[] m_suffixes = new String[kCapacity];
+    private static final double[] m_values = new double[kCapacity];
+    private static final boolean[] m_hasValue = new boolean[kCapacity];
+    private static final long[] m_suppressed = new long[kCapacity];
+    /** Slot i is free for position p when it holds p, and filled when it holds p + 1 */
+    private static final AtomicLongArray m_sequences = new AtomicLongArray(kCapacity);
+    private static final AtomicLong m_tail = new AtomicLong();
+    /** Only touched by the printer thread */
+    private static long m_head = 0;
+
+    private static final AtomicLong m_dropped = new AtomicLong();
+
+    static {
+        for (int i = 0; i < kCapacity; i++) {
+            m_sequences.set(i, i);
+        }
+        var printer = new Thread(AsyncConsole::printerLoop, "AsyncConsole");
+        printer.setDaemon(true);
+        printer.setPriority(Thread.MIN_PRIORITY);
+        printer.start();
+    }
+
+    /** A rate-limited message source, e.g. one per print site */
+    public static final class Channel {
+        private final long m_minPeriodUs;
+        private long m_lastPrintUs = Long.MIN_VALUE / 2;
+        private long m_suppressed = 0;
+
+        private Channel(double minPeriodSecs) {
+            m_minPeriodUs = (long) (minPeriodSecs * 1e6);
+        }
+
+        private boolean admit() {
+            long now = WPIUtilJNI.now();
+            if (now - m_lastPrintUs < m_minPeriodUs) {
+                m_suppressed++;
+                return false;
+            }
+            m_lastPrintUs = now;
+            return true;
+        }
+
+        /** Prints the text, unless this channel printed within its period */
+        public void print(String text) {
+            if (admit()) {
+                enqueue(text, 0, false, null, takeSuppressed());
+            }
+        }
+
+        /** Prints prefix + value + suffix, unless this channel printed within its period */
+        public void print(String prefix, double value, String suffix) {
+            if (admit()) {
+                enqueue(prefix, value, true, suffix, takeSuppressed());
+            }
+        }
+
+        private long takeSuppressed() {
+            long count = m_suppressed;
+            m_suppressed = 0;
+            return count;
+        }
+    }
+
+    /**
+     * @param minPeriodSecs minimum time between two printed messages of the channel
+     */
+    public static Channel channel(double minPeriodSecs) {
+        return new Channel(minPeriodSecs);
+    }
+
+    /** Prints the text without rate limiting */
+    public static void print(String text) {
+        enqueue(text, 0, false, null, 0);
+    }
+
+    /** @return messages dropped because the ring was full */
+    public static long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    private static void enqueue(String prefix, double value, boolean hasValue, String suffix, long suppressed) {
+        long pos = m_tail.get();
+        while (true) {
+            int idx = (int) (pos & kMask);
+            long dif = m_sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_prefixes[idx] = prefix;
+                    m_values[idx] = value;
+                    m_hasValue[idx] = hasValue;
+                    m_suffixes[idx] = suffix;
+                    m_suppressed[idx] = suppressed;
+                    // publishes the slot contents to the printer
+                    m_sequences.set(idx, pos + 1);
+                    return;
+                }
+                pos = m_tail.get();
+            } else if (dif < 0) {
+                m_dropped.incrementAndGet();
+                return;
+            } else {
+                pos = m_tail.get();
+            }
+        }
+    }
+
+    /** Formats the oldest message into the builder. Printer thread only. @return false if there was none */
+    private static boolean poll(StringBuilder out) {
+        int idx = (int) (m_head & kMask);
+        if (m_sequences.get(idx) != m_head + 1) {
+            return false;
+        }
+        String prefix = m_prefixes[idx];
+        double value = m_values[idx];
+        boolean hasValue = m_hasValue[idx];
+        String suffix = m_suffixes[idx];
+        long suppressed = m_suppressed[idx];
+        m_prefixes[idx] = null;
+        m_suffixes[idx] = null;
+        // hand the slot back to producers before formatting
+        m_sequences.set(idx, m_head + kCapacity);
+        m_head++;
+
+        out.append(prefix);
+        if (hasValue) {
+            out.append(value);
+        }
+        if (suffix != null) {
+            out.append(suffix);
+        }
+        if (suppressed > 0) {
+            out.append(" (+").append(suppressed).append(" suppressed)");
+        }
+        out.append('\n');
+        return true;
+    }
+
+    private static void printerLoop() {
+        var out = new StringBuilder();
+        long lastDropped = 0;
+        while (true) {
+            out.setLength(0);
+            while (poll(out)) {
+            }
+            long dropped = m_dropped.get();
+            if (dropped != lastDropped) {
+                out.append("[AsyncConsole] dropped ").append(dropped - lastDropped).append(" messages\n");
+                lastDropped = dropped;
+            }
+            if (out.length() > 0) {
+                System.out.print(out);
+            } else {
+                LockSupport.parkNanos(kIdleParkNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package frc.util;
+
+import static frc.robot.Constants.kCanbus;
+
+import java.util.ArrayList;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import frc.util.logging.WaltLogger;
+import frc.util.logging.WaltLogger.BooleanLogger;
+import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.WaltLogger.IntLogger;
+
+/**
+ * Owns the status frame rates on the {@code kCanbus} CANivore.
+ * <p>
+ * Subsystems {@link #require} the rate each signal they read actually needs. {@link #apply()}
+ * then sets those rates and calls {@code optimizeBusUtilization} on every registered device, which
+ * turns off every signal nobody asked for. Anything read from a device without being declared here
+ * goes stale after boot, so new devices and new reads need a declaration to go with them.
+ * <p>
+ * {@link #periodic()} publishes the bus status under "CAN/fd" and, per device under
+ * "CAN/fd/<name>", the declared frames per second and the observed update rate of its fastest
+ * signal. The observed rate is sampled once per loop, so it tops out at the loop rate; a device
+ * that falls well below that or its declared rate is being starved.
+ * <p>
+ * Declarations happen during construction and {@link #periodic()} runs on the robot loop thread.
+ */
+public final class CanBusManager {
+    private CanBusManager() {
+    }
+
+    private static final long kPublishPeriodUs = 1_000_000;
+
+    private static final class Device {
+        private final String m_name;
+        private final ParentDevice m_device;
+        private final ArrayList<BaseStatusSignal> m_signals = new ArrayList<>();
+        private final ArrayList<Double> m_rates = new ArrayList<>();
+        private BaseStatusSignal m_probe;
+        private double m_lastProbeTime = Double.NaN;
+        private int m_probeUpdates = 0;
+        private final DoubleLogger log_declaredHz;
+        private final DoubleLogger log_observedHz;
+
+        private Device(String name, ParentDevice device) {
+            m_name = name;
+            m_device = device;
+            log_declaredHz = WaltLogger.logDouble("CAN/" + kCanbus + "/" + name, "declaredHz");
+            log_observedHz = WaltLogger.logDouble("CAN/" + kCanbus + "/" + name, "observedHz");
+        }
+
+        private double declaredHz() {
+            double total = 0;
+            for (int i = 0; i < m_rates.size(); i++) {
+                total += m_rates.get(i);
+            }
+            return total;
+        }
+    }
+
+    private static final ArrayList<Device> m_devices = new ArrayList<>();
+    private static BaseStatusSignal[] m_probes = new BaseStatusSignal[0];
+    private static boolean m_applied = false;
+    private static long m_lastPublishUs = 0;
+
+    private static final DoubleLogger log_utilization = WaltLogger.logDouble("CAN/" + kCanbus, "utilization");
+    private static final IntLogger log_busOff = WaltLogger.logInt("CAN/" + kCanbus, "busOffCount");
+    private static final IntLogger log_txFull = WaltLogger.logInt("CAN/" + kCanbus, "txFullCount");
+    private static final IntLogger log_rxErrors = WaltLogger.logInt("CAN/" + kCanbus, "rxErrorCount");
+    private static final IntLogger log_txErrors = WaltLogger.logInt("CAN/" + kCanbus, "txErrorCount");
+    private static final BooleanLogger log_statusOk = WaltLogger.logBoolean("CAN/" + kCanbus, "statusOk");
+    private static final AsyncConsole.Channel m_statusPrint = AsyncConsole.channel(5.0);
+
+    /**
+     * Declares that these signals must update at least this fast. Declaring a signal twice keeps
+     * the faster rate.
+     * @param name - Device name for the "CAN/fd/<name>" logs, shared by every call for that device
+     * @param device - Device the signals belong to, on {@code kCanbus}
+     * @param hz - Required update frequency
+     * @param signals - Signals from {@code device}
+     */
+    public static synchronized void require(String name, ParentDevice device, double hz, BaseStatusSignal... signals) {
+        if (m_applied) {
+            throw new IllegalStateException("CanBusManager: " + name + " declared after apply()");
+        }
+        if (signals.length == 0) {
+            throw new IllegalArgumentException("CanBusManager: " + name + " declared no signals");
+        }
+        if (!kCanbus.equals(device.getNetwork())) {
+            throw new IllegalArgumentException("CanBusManager: " + name + " is on '" + device.getNetwork()
+                + "', not '" + kCanbus + "'");
+        }
+
+        Device dev = null;
+        for (int i = 0; i < m_devices.size(); i++) {
+            if (m_devices.get(i).m_device == device) {
+                dev = m_devices.get(i);
+                break;
+            }
+        }
+        if (dev == null) {
+            dev = new Device(name, device);
+            m_devices.add(dev);
+        }
+
+        for (var signal : signals) {
+            int idx = dev.m_signals.indexOf(signal);
+            if (idx < 0) {
+                dev.m_signals.add(signal);
+                dev.m_rates.add(hz);
+            } else if (dev.m_rates.get(idx) < hz) {
+                dev.m_rates.set(idx, hz);
+            }
+        }
+    }
+
+    /** Applies every declared rate and optimizes every registered device. Once, after all subsystems exist. */
+    public static synchronized void apply() {
+        if (m_applied) return;
+        m_applied = true;
+
+        double totalHz = 0;
+        m_probes = new BaseStatusSignal[m_devices.size()];
+        for (int d = 0; d < m_devices.size(); d++) {
+            var dev = m_devices.get(d);
+            int fastest = 0;
+            for (int i = 0; i < dev.m_signals.size(); i++) {
+                double hz = dev.m_rates.get(i);
+                StatusCode status = dev.m_signals.get(i).setUpdateFrequency(hz);
+                if (!status.isOK()) {
+                    System.out.println("[CAN] " + dev.m_name + ": failed to set "
+                        + dev.m_signals.get(i).getName() + " to " + hz + " Hz: " + status);
+                }
+                if (hz > dev.m_rates.get(fastest)) {
+                    fastest = i;
+                }
+            }
+            StatusCode status = dev.m_device.optimizeBusUtilization();
+            if (!status.isOK()) {
+                System.out.println("[CAN] " + dev.m_name + ": optimizeBusUtilization failed: " + status);
+            }
+
+            // own copy, so refreshing it doesn't disturb whoever else reads the signal
+            dev.m_probe = dev.m_signals.get(fastest).clone();
+            m_probes[d] = dev.m_probe;
+            double declared = dev.declaredHz();
+            dev.log_declaredHz.accept(declared);
+            totalHz += declared;
+        }
+        System.out.println("[CAN] " + kCanbus + ": " + m_devices.size() + " devices, "
+            + Math.round(totalHz) + " declared frames/s");
+        m_lastPublishUs = WPIUtilJNI.now();
+    }
+
+    public static void periodic() {
+        if (m_probes.length > 0) {
+            BaseStatusSignal.refreshAll(m_probes);
+            for (int i = 0; i < m_devices.size(); i++) {
+                var dev = m_devices.get(i);
+                double time = dev.m_probe.getTimestamp().getTime();
+                if (time != dev.m_lastProbeTime) {
+                    dev.m_lastProbeTime = time;
+                    dev.m_probeUpdates++;
+                }
+            }
+        }
+
+        long now = WPIUtilJNI.now();
+        long elapsedUs = now - m_lastPublishUs;
+        if (elapsedUs < kPublishPeriodUs) {
+            return;
+        }
+        m_lastPublishUs = now;
+
+        for (int i = 0; i < m_devices.size(); i++) {
+            var dev = m_devices.get(i);
+            dev.log_observedHz.accept(dev.m_probeUpdates / (elapsedUs / 1e6));
+            dev.m_probeUpdates = 0;
+        }
+
+        var status = CANBus.getStatus(kCanbus);
+        boolean ok = status.Status.isOK();
+        log_statusOk.accept(ok);
+        if (!ok) {
+            m_statusPrint.print("[CAN] " + kCanbus + " status failed: " + status.Status);
+            return;
+        }
+        log_utilization.accept(status.BusUtilization);
+        log_busOff.accept(status.BusOffCount);
+        log_txFull.accept(status.TxFullCount);
+        log_rxErrors.accept(status.REC);
+        log_txErrors.accept(status.TEC);
+    }
+}
@@ -1,7 +1,6 @@
 package frc.util;
 
 
-import java.util.Set;
 import java.util.function.Supplier;
 
 import edu.wpi.first.wpilibj2.command.Command;
@@ -11,13 +10,12 @@ public final class CommandDoodads {
     private CommandDoodads() {}
 
 	/**
-	 * Waits a moment before printing (???). The code is kind of wild, would recommend a peek
-	 * @param stringSup - The String to print after a moment
+	 * Builds the String when the command runs (not when it is created) and prints it
+	 * through {@link AsyncConsole}, so the robot loop never waits on the console
+	 * @param stringSup - The String to print when the command runs
 	 */
     public static Command printLater(Supplier<String> stringSup) {
-		return defer(() -> {
-			return print(stringSup.get());
-		}, Set.of());
+		return runOnce(() -> AsyncConsole.print(stringSup.get())).ignoringDisable(true);
 	}
     
 }
@@ -7,22 +7,27 @@ import edu.wpi.first.wpilibj2.command.Command;
 
 public class CommandLogger {
     public static String info(Command cmd) {
-        String reqs = "";
+        var reqs = new StringBuilder();
         for (var req : cmd.getRequirements()) {
-            reqs += req.getName() + " ";
+            if (reqs.length() > 0) {
+                reqs.append(' ');
+            }
+            reqs.append(req.getName());
         }
 
-        return "Name: " + cmd.getName() + 
-            "\nSubsys: " + cmd.getSubsystem() +
-            "\nReqs: {" + reqs.trim() + "}";
+        return new StringBuilder()
+            .append("Name: ").append(cmd.getName())
+            .append("\nSubsys: ").append(cmd.getSubsystem())
+            .append("\nReqs: {").append(reqs).append('}')
+            .toString();
     }
 
-   
+    /** Human-readable dump of interrupts. For structured, low-overhead records use {@link CommandProfiler}. */
     public static BiConsumer<Command, Optional<Command>> commandInterruptLogger() {
         return (cmd, optIntCmd) -> {
-            String dump = "INT'D CMD:\n" + info(cmd);
+            var dump = new StringBuilder("INT'D CMD:\n").append(info(cmd));
             if (optIntCmd.isPresent()) {
-                dump += "\nINT'R CMD:\n" + info(optIntCmd.get()); 
+                dump.append("\nINT'R CMD:\n").append(info(optIntCmd.get()));
             }
             System.out.println(dump);
         };
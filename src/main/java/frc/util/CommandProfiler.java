@@ -0,0 +1,181 @@
+package frc.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.IntegerArrayLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import edu.wpi.first.wpilibj2.command.Subsystem;
+
+/**
+ * Profiles scheduled commands through the CommandScheduler callbacks and logs one compact
+ * integer-array record per command run to "Robot/Commands/runs":
+ * <pre>[id, endKind, scheduledUs, execCount, execTotalUs, execMaxUs, interrupterId]</pre>
+ * where endKind is {@link #kFinished} or {@link #kInterrupted}, and interrupterId is the id of the
+ * command that caused the interrupt, or -1. Following interrupterIds gives the interruption
+ * chain. Ids map to names through "Robot/Commands/names" ("id:name"), written once per command.
+ * <p>
+ * Execute callbacks fire after {@code execute()} returns, so a command's execute time is measured
+ * from the previous scheduler event in the same loop. A marker subsystem registered after all
+ * the real ones stamps the end of the subsystem periodics, so those aren't charged to the first
+ * command. Only top-level commands are seen; a sequence is profiled as one command.
+ */
+public final class CommandProfiler {
+    private CommandProfiler() {
+    }
+
+    public static final int kFinished = 0;
+    public static final int kInterrupted = 1;
+    private static final long kPublishPeriodUs = 5_000_000;
+    private static final int kSlowestCount = 10;
+
+    private static final class Stats {
+        final int id;
+        final String name;
+        long scheduledAtUs;
+        long execCount;
+        long execTotalUs;
+        long execMaxUs;
+
+        long runs;
+        long lifetimeExecMaxUs;
+        long lifetimeExecTotalUs;
+        long lifetimeExecCount;
+
+        Stats(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private static final Map<Command, Stats> m_stats = new IdentityHashMap<>();
+    private static final List<Stats> m_byId = new ArrayList<>();
+    private static final long[] m_record = new long[7];
+    private static long m_lastEventUs = 0;
+    private static long m_lastPublishUs = 0;
+    private static boolean m_slowestDirty = false;
+
+    private static IntegerArrayLogEntry m_runsLog;
+    private static StringLogEntry m_namesLog;
+    private static StringArrayPublisher m_slowestPub;
+
+    /** Hooks into the scheduler. Call once from robotInit, after every subsystem exists. */
+    public static void start() {
+        if (m_runsLog != null) {
+            return;
+        }
+        m_runsLog = new IntegerArrayLogEntry(DataLogManager.getLog(), "Robot/Commands/runs");
+        m_namesLog = new StringLogEntry(DataLogManager.getLog(), "Robot/Commands/names");
+        m_slowestPub = NetworkTableInstance.getDefault().getTable("Robot").getSubTable("Commands")
+            .getStringArrayTopic("slowest").publish();
+
+        var scheduler = CommandScheduler.getInstance();
+        scheduler.registerSubsystem(new Subsystem() {
+            @Override
+            public void periodic() {
+                m_lastEventUs = WPIUtilJNI.now();
+            }
+        });
+        scheduler.onCommandInitialize(CommandProfiler::onInitialize);
+        scheduler.onCommandExecute(CommandProfiler::onExecute);
+        scheduler.onCommandFinish(cmd -> onEnd(cmd, kFinished, Optional.empty()));
+        scheduler.onCommandInterrupt((cmd, interrupter) -> onEnd(cmd, kInterrupted, interrupter));
+    }
+
+    private static Stats statsFor(Command cmd) {
+        var stats = m_stats.get(cmd);
+        if (stats == null) {
+            stats = new Stats(m_byId.size(), cmd.getName());
+            m_stats.put(cmd, stats);
+            m_byId.add(stats);
+            m_namesLog.append(stats.id + ":" + stats.name);
+        }
+        return stats;
+    }
+
+    private static void onInitialize(Command cmd) {
+        long now = WPIUtilJNI.now();
+        var stats = statsFor(cmd);
+        stats.scheduledAtUs = now;
+        stats.execCount = 0;
+        stats.execTotalUs = 0;
+        stats.execMaxUs = 0;
+        m_lastEventUs = now;
+    }
+
+    private static void onExecute(Command cmd) {
+        long now = WPIUtilJNI.now();
+        long dt = now - m_lastEventUs;
+        m_lastEventUs = now;
+
+        var stats = statsFor(cmd);
+        stats.execCount++;
+        stats.execTotalUs += dt;
+        if (dt > stats.execMaxUs) {
+            stats.execMaxUs = dt;
+        }
+    }
+
+    private static void onEnd(Command cmd, int kind, Optional<Command> interrupter) {
+        long now = WPIUtilJNI.now();
+        m_lastEventUs = now;
+        var stats = statsFor(cmd);
+
+        m_record[0] = stats.id;
+        m_record[1] = kind;
+        m_record[2] = now - stats.scheduledAtUs;
+        m_record[3] = stats.execCount;
+        m_record[4] = stats.execTotalUs;
+        m_record[5] = stats.execMaxUs;
+        m_record[6] = interrupter.isPresent() ? statsFor(interrupter.get()).id : -1;
+        m_runsLog.append(m_record, now);
+
+        stats.runs++;
+        stats.lifetimeExecCount += stats.execCount;
+        stats.lifetimeExecTotalUs += stats.execTotalUs;
+        if (stats.execMaxUs > stats.lifetimeExecMaxUs) {
+            stats.lifetimeExecMaxUs = stats.execMaxUs;
+            m_slowestDirty = true;
+        }
+    }
+
+    /**
+     * @param count how many to return
+     * @return "name: max X ms, avg Y ms, N runs" for the commands with the slowest single execute
+     */
+    public static List<String> getSlowest(int count) {
+        var sorted = new ArrayList<>(m_byId);
+        sorted.sort((a, b) -> Long.compare(b.lifetimeExecMaxUs, a.lifetimeExecMaxUs));
+        var out = new ArrayList<String>();
+        for (int i = 0; i < Math.min(count, sorted.size()); i++) {
+            var s = sorted.get(i);
+            if (s.runs == 0) {
+                break;
+            }
+            double avgMs = s.lifetimeExecCount == 0 ? 0 : s.lifetimeExecTotalUs / 1000.0 / s.lifetimeExecCount;
+            out.add(String.format("%s: max %.2f ms, avg %.3f ms, %d runs",
+                s.name, s.lifetimeExecMaxUs / 1000.0, avgMs, s.runs));
+        }
+        return out;
+    }
+
+    /** Republishes the slowest commands if they changed. Call every loop; only runs every few seconds. */
+    public static void periodic() {
+        long now = WPIUtilJNI.now();
+        if (m_slowestPub == null || !m_slowestDirty || now - m_lastPublishUs < kPublishPeriodUs) {
+            return;
+        }
+        m_lastPublishUs = now;
+        m_slowestDirty = false;
+        m_slowestPub.set(getSlowest(kSlowestCount).toArray(new String[0]));
+    }
+}
@@ -0,0 +1,50 @@
+package frc.util;
+
+/**
+ * Turns the latest rising/falling edge timestamps of an interrupt into a level that only
+ * changes when a new edge shows up. Falling edges (DIO pulled low) latch true, rising edges
+ * latch false, so a short pulse between two polls is still seen.
+ * <p>
+ * Has no hardware dependencies, so log replay can feed it edges reconstructed from a log.
+ */
+public final class EdgeLatch {
+    private double m_lastRising = 0;
+    private double m_lastFalling = 0;
+    private boolean m_value;
+
+    public EdgeLatch(boolean initial) {
+        m_value = initial;
+    }
+
+    /**
+     * @param latestRising timestamp of the latest rising edge, in seconds
+     * @param latestFalling timestamp of the latest falling edge, in seconds
+     * @return the latched value after applying any new edge
+     */
+    public boolean update(double latestRising, double latestFalling) {
+        boolean risingNew = latestRising > m_lastRising;
+        if (risingNew) {
+            m_lastRising = latestRising;
+        }
+
+        boolean fallingNew = latestFalling > m_lastFalling;
+        if (fallingNew) {
+            m_lastFalling = latestFalling;
+        }
+
+        if (latestFalling > latestRising && fallingNew) {
+            m_value = true;
+        } else if (latestRising > latestFalling && risingNew) {
+            m_value = false;
+        }
+        return m_value;
+    }
+
+    public boolean get() {
+        return m_value;
+    }
+
+    public void set(boolean value) {
+        m_value = value;
+    }
+}
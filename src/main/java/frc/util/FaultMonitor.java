@@ -0,0 +1,179 @@
+package frc.util;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import frc.util.logging.WaltLogger.BooleanLogger;
+
+/**
+ * Evaluates every range check in one pass over flat arrays, without Triggers, Timers or commands.
+ * A check faults low (or high) once its value has been out of range for its debounce window, and
+ * clears as soon as it is back in range. Faults are logged to "Faults/<name>_Low" and
+ * "Faults/<name>_High", printed through {@link AsyncConsole} and trigger the
+ * {@link FlightRecorder}.
+ * <p>
+ * Checks are added at startup; {@link #periodic()} runs from the robot loop thread.
+ */
+public final class FaultMonitor {
+    private FaultMonitor() {
+    }
+
+    private static int m_count = 0;
+    private static DoubleSupplier[] m_suppliers = new DoubleSupplier[16];
+    private static double[] m_min = new double[16];
+    private static double[] m_max = new double[16];
+    private static boolean[] m_inclusive = new boolean[16];
+    private static long[] m_debounceUs = new long[16];
+    /** When the value first went out of range low/high, or -1 while in range */
+    private static long[] m_lowSinceUs = new long[16];
+    private static long[] m_highSinceUs = new long[16];
+    private static boolean[] m_lowFaulted = new boolean[16];
+    private static boolean[] m_highFaulted = new boolean[16];
+    private static long[] m_faultStartUs = new long[16];
+    private static BooleanLogger[] m_lowLoggers = new BooleanLogger[16];
+    private static BooleanLogger[] m_highLoggers = new BooleanLogger[16];
+    /** Message text is built once per check, so fault edges don't format strings */
+    private static String[] m_lowReasons = new String[16];
+    private static String[] m_highReasons = new String[16];
+    private static String[] m_lowMsgs = new String[16];
+    private static String[] m_highMsgs = new String[16];
+    private static String[] m_lowClearMsgs = new String[16];
+    private static String[] m_highClearMsgs = new String[16];
+
+    private static final AsyncConsole.Channel m_faultPrint = AsyncConsole.channel(0);
+    private static long m_periodUs = 20_000;
+    private static long m_lastRunUs = Long.MIN_VALUE / 2;
+
+    private static void grow() {
+        int size = m_suppliers.length * 2;
+        m_suppliers = Arrays.copyOf(m_suppliers, size);
+        m_min = Arrays.copyOf(m_min, size);
+        m_max = Arrays.copyOf(m_max, size);
+        m_inclusive = Arrays.copyOf(m_inclusive, size);
+        m_debounceUs = Arrays.copyOf(m_debounceUs, size);
+        m_lowSinceUs = Arrays.copyOf(m_lowSinceUs, size);
+        m_highSinceUs = Arrays.copyOf(m_highSinceUs, size);
+        m_lowFaulted = Arrays.copyOf(m_lowFaulted, size);
+        m_highFaulted = Arrays.copyOf(m_highFaulted, size);
+        m_faultStartUs = Arrays.copyOf(m_faultStartUs, size);
+        m_lowLoggers = Arrays.copyOf(m_lowLoggers, size);
+        m_highLoggers = Arrays.copyOf(m_highLoggers, size);
+        m_lowReasons = Arrays.copyOf(m_lowReasons, size);
+        m_highReasons = Arrays.copyOf(m_highReasons, size);
+        m_lowMsgs = Arrays.copyOf(m_lowMsgs, size);
+        m_highMsgs = Arrays.copyOf(m_highMsgs, size);
+        m_lowClearMsgs = Arrays.copyOf(m_lowClearMsgs, size);
+        m_highClearMsgs = Arrays.copyOf(m_highClearMsgs, size);
+    }
+
+    /**
+     * Adds a range check.
+     * @param name - Name used for the fault loggers and flight recorder dumps
+     * @param val - Value to check; called every evaluation, so it should be cheap
+     * @param min - Lower bound
+     * @param max - Upper bound
+     * @param secondsToFail - How long the value must be out of range before it faults
+     * @param eqTo - Whether being exactly on a bound counts as out of range
+     * @return index of the check
+     */
+    public static synchronized int add(String name, DoubleSupplier val, double min, double max, double secondsToFail, boolean eqTo) {
+        if (m_count == m_suppliers.length) {
+            grow();
+        }
+        int i = m_count;
+        m_suppliers[i] = val;
+        m_min[i] = min;
+        m_max[i] = max;
+        m_inclusive[i] = eqTo;
+        m_debounceUs[i] = (long) (secondsToFail * 1e6);
+        m_lowSinceUs[i] = -1;
+        m_highSinceUs[i] = -1;
+        m_lowLoggers[i] = new BooleanLogger("Faults", name + "_Low");
+        m_highLoggers[i] = new BooleanLogger("Faults", name + "_High");
+        m_lowLoggers[i].accept(false);
+        m_highLoggers[i].accept(false);
+        m_lowReasons[i] = name + "_Low";
+        m_highReasons[i] = name + "_High";
+        m_lowMsgs[i] = name + " has been below range for " + secondsToFail + " seconds, now ";
+        m_highMsgs[i] = name + " has been above range for " + secondsToFail + " seconds, now ";
+        m_lowClearMsgs[i] = name + " re-entered safe range from low after ";
+        m_highClearMsgs[i] = name + " re-entered safe range from high after ";
+        m_count++;
+        return i;
+    }
+
+    /** Sets how often {@link #periodic()} actually evaluates the checks */
+    public static void setPeriod(double periodSecs) {
+        m_periodUs = (long) (periodSecs * 1e6);
+    }
+
+    public static int getCheckCount() {
+        return m_count;
+    }
+
+    /** @return whether the check is currently faulted either way */
+    public static boolean isFaulted(int check) {
+        return m_lowFaulted[check] || m_highFaulted[check];
+    }
+
+    /** Evaluates every check if the period has elapsed. Call every loop. */
+    public static void periodic() {
+        long now = WPIUtilJNI.now();
+        if (now - m_lastRunUs < m_periodUs) {
+            return;
+        }
+        m_lastRunUs = now;
+
+        int count = m_count;
+        for (int i = 0; i < count; i++) {
+            double v = m_suppliers[i].getAsDouble();
+            boolean low = m_inclusive[i] ? v <= m_min[i] : v < m_min[i];
+            boolean high = m_inclusive[i] ? v >= m_max[i] : v > m_max[i];
+
+            if (low) {
+                if (m_lowSinceUs[i] < 0) {
+                    m_lowSinceUs[i] = now;
+                }
+                if (!m_lowFaulted[i] && now - m_lowSinceUs[i] >= m_debounceUs[i]) {
+                    m_lowFaulted[i] = true;
+                    onFault(i, now, v, m_lowLoggers[i], m_lowMsgs[i], m_lowReasons[i]);
+                }
+            } else {
+                m_lowSinceUs[i] = -1;
+                if (m_lowFaulted[i]) {
+                    m_lowFaulted[i] = false;
+                    onClear(i, now, m_lowLoggers[i], m_lowClearMsgs[i]);
+                }
+            }
+
+            if (high) {
+                if (m_highSinceUs[i] < 0) {
+                    m_highSinceUs[i] = now;
+                }
+                if (!m_highFaulted[i] && now - m_highSinceUs[i] >= m_debounceUs[i]) {
+                    m_highFaulted[i] = true;
+                    onFault(i, now, v, m_highLoggers[i], m_highMsgs[i], m_highReasons[i]);
+                }
+            } else {
+                m_highSinceUs[i] = -1;
+                if (m_highFaulted[i]) {
+                    m_highFaulted[i] = false;
+                    onClear(i, now, m_highLoggers[i], m_highClearMsgs[i]);
+                }
+            }
+        }
+    }
+
+    private static void onFault(int i, long now, double value, BooleanLogger logger, String msg, String reason) {
+        logger.accept(true);
+        m_faultStartUs[i] = now;
+        m_faultPrint.print(msg, value, null);
+        FlightRecorder.trigger(reason);
+    }
+
+    private static void onClear(int i, long now, BooleanLogger logger, String msg) {
+        logger.accept(false);
+        m_faultPrint.print(msg, (now - m_faultStartUs[i]) / 1e6, " seconds");
+    }
+}
@@ -0,0 +1,249 @@
+package frc.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Black box for high-rate signals. Registered channels are sampled every fast loop into a
+ * preallocated ring holding the last {@link #kRecordSecs} seconds, which is never logged on its
+ * own. Every sample carries its own timestamp: the fast loop's time for supplier channels, and
+ * for status signal channels the time the device measured the value. A status signal only gets a
+ * new frame at the rate declared for it in {@link CanBusManager}, so the dump keeps each frame
+ * once instead of repeating it every fast loop. When {@link #trigger(String)} is called (e.g. by a {@link WaltRangeChecker} fault), the ring
+ * keeps recording for {@link #kPostTriggerSecs} more seconds, then a snapshot is handed to a
+ * background thread that writes it to its own {@code blackbox_*.wpilog} next to the match log.
+ * <p>
+ * {@link #sample()} and {@link #trigger(String)} must be called from the robot loop thread.
+ */
+public final class FlightRecorder {
+    private FlightRecorder() {
+    }
+
+    public static final int kMaxChannels = 32;
+    /** How much history is kept before a trigger */
+    public static final double kRecordSecs = 5;
+    /** How long recording continues after a trigger before the snapshot is taken */
+    public static final double kPostTriggerSecs = 1;
+
+    private static final String[] m_names = new String[kMaxChannels];
+    private static final DoubleSupplier[] m_suppliers = new DoubleSupplier[kMaxChannels];
+    /** The recorder's own copy of each status signal channel, null for supplier channels */
+    private static final BaseStatusSignal[] m_channelSignals = new BaseStatusSignal[kMaxChannels];
+    /** Device time of the last frame seen per signal channel, to tell a new frame from a repeat */
+    private static final double[] m_lastFrameTimes = new double[kMaxChannels];
+    /** DataLog time of that frame */
+    private static final long[] m_lastFrameUs = new long[kMaxChannels];
+    private static BaseStatusSignal[] m_signals = new BaseStatusSignal[0];
+    private static int m_channelCount = 0;
+    private static final AsyncConsole.Channel m_refreshPrint = AsyncConsole.channel(1.0);
+    /** Only a change of refresh status is printed, so a CAN fault doesn't build a message every sample */
+    private static StatusCode m_lastRefreshStatus = StatusCode.OK;
+
+    private static int m_rows = 0;
+    private static double[] m_samples;
+    /** Per row and channel, like {@link #m_samples} */
+    private static long[] m_timestamps;
+    /** Next row to write */
+    private static int m_head = 0;
+    private static int m_filled = 0;
+
+    private static double[] m_snapshotSamples;
+    private static long[] m_snapshotTimestamps;
+    private static int m_snapshotRows = 0;
+    private static int m_snapshotChannels = 0;
+    private static String m_snapshotReason = "";
+
+    private static int m_postTriggerRows = 0;
+    /** Rows left to record before snapshotting, or -1 when not triggered */
+    private static int m_postRemaining = -1;
+    private static String m_pendingReason = "";
+    private static volatile boolean m_dumping = false;
+    private static int m_dumpCount = 0;
+    private static final Semaphore m_dumpReady = new Semaphore(0);
+    private static StringLogEntry m_dumpLog;
+
+    /**
+     * Allocates the ring and starts the dump thread. Call once, before the sampling loop starts.
+     * @param samplePeriodSecs how often {@link #sample()} will be called
+     */
+    public static synchronized void start(double samplePeriodSecs) {
+        if (m_samples != null) {
+            return;
+        }
+        m_rows = (int) Math.ceil(kRecordSecs / samplePeriodSecs);
+        m_postTriggerRows = (int) Math.ceil(kPostTriggerSecs / samplePeriodSecs);
+        m_samples = new double[m_rows * kMaxChannels];
+        m_timestamps = new long[m_rows * kMaxChannels];
+        m_snapshotSamples = new double[m_rows * kMaxChannels];
+        m_snapshotTimestamps = new long[m_rows * kMaxChannels];
+        m_dumpLog = new StringLogEntry(DataLogManager.getLog(), "Robot/FlightRecorder/dumps");
+
+        var writer = new Thread(FlightRecorder::writerLoop, "FlightRecorderWriter");
+        writer.setDaemon(true);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    /**
+     * Registers a signal to record. Suppliers are called every fast loop, so they should only
+     * read cached values.
+     */
+    public static synchronized void addChannel(String name, DoubleSupplier supplier) {
+        if (m_channelCount >= kMaxChannels) {
+            System.out.println("[FlightRecorder] too many channels, ignoring " + name);
+            return;
+        }
+        m_names[m_channelCount] = name;
+        m_suppliers[m_channelCount] = supplier;
+        m_channelCount++;
+    }
+
+    /**
+     * Registers a status signal to record at the rate its frames arrive, stamped with when the
+     * device measured each one. The recorder refreshes its own copy, so the signal's owner is
+     * unaffected. Every signal channel must be on {@code kCanbus}.
+     */
+    public static synchronized void addChannel(String name, StatusSignal<Double> signal) {
+        if (m_channelCount >= kMaxChannels) {
+            System.out.println("[FlightRecorder] too many channels, ignoring " + name);
+            return;
+        }
+        var copy = signal.clone();
+        m_channelSignals[m_channelCount] = copy;
+        m_lastFrameTimes[m_channelCount] = Double.NaN;
+        var signals = new BaseStatusSignal[m_signals.length + 1];
+        System.arraycopy(m_signals, 0, signals, 0, m_signals.length);
+        signals[m_signals.length] = copy;
+        m_signals = signals;
+        addChannel(name, copy::getValueAsDouble);
+    }
+
+    /** Records one row of every channel. Does not allocate. */
+    public static void sample() {
+        if (m_samples == null) {
+            return;
+        }
+        if (m_signals.length > 0) {
+            StatusCode status = BaseStatusSignal.refreshAll(m_signals);
+            if (status != m_lastRefreshStatus) {
+                m_lastRefreshStatus = status;
+                if (!status.isOK()) {
+                    m_refreshPrint.print("[FlightRecorder] refresh failed: " + status);
+                }
+            }
+        }
+        long now = WPIUtilJNI.now();
+        int base = m_head * kMaxChannels;
+        int count = m_channelCount;
+        for (int i = 0; i < count; i++) {
+            m_samples[base + i] = m_suppliers[i].getAsDouble();
+            m_timestamps[base + i] = m_channelSignals[i] == null ? now : frameTimeUs(i, now);
+        }
+        m_head = (m_head + 1) % m_rows;
+        if (m_filled < m_rows) {
+            m_filled++;
+        }
+
+        if (m_postRemaining > 0) {
+            m_postRemaining--;
+        } else if (m_postRemaining == 0) {
+            m_postRemaining = -1;
+            snapshot();
+        }
+    }
+
+    /** @return when channel i's signal was measured, in the DataLog time base */
+    private static long frameTimeUs(int i, long nowUs) {
+        var timestamp = m_channelSignals[i].getTimestamp();
+        double frameTime = timestamp.getTime();
+        if (frameTime != m_lastFrameTimes[i]) {
+            // the signal's clock isn't the DataLog's, but its age is the same in both
+            m_lastFrameTimes[i] = frameTime;
+            m_lastFrameUs[i] = nowUs - (long) (timestamp.getLatency() * 1e6);
+        }
+        return m_lastFrameUs[i];
+    }
+
+    /**
+     * Asks for a dump of the recent history. Ignored while a previous trigger is still being
+     * recorded or written.
+     * @param reason short tag for the dump's file name, e.g. "MiniPc_Low"
+     */
+    public static void trigger(String reason) {
+        if (m_samples == null || m_postRemaining >= 0 || m_dumping) {
+            return;
+        }
+        m_pendingReason = reason;
+        m_postRemaining = m_postTriggerRows;
+    }
+
+    /** Copies the ring, oldest row first, and wakes the writer */
+    private static void snapshot() {
+        int start = (m_head - m_filled + m_rows) % m_rows;
+        int firstPart = Math.min(m_filled, m_rows - start);
+        System.arraycopy(m_samples, start * kMaxChannels, m_snapshotSamples, 0, firstPart * kMaxChannels);
+        System.arraycopy(m_timestamps, start * kMaxChannels, m_snapshotTimestamps, 0, firstPart * kMaxChannels);
+        if (firstPart < m_filled) {
+            System.arraycopy(m_samples, 0, m_snapshotSamples, firstPart * kMaxChannels, (m_filled - firstPart) * kMaxChannels);
+            System.arraycopy(m_timestamps, 0, m_snapshotTimestamps, firstPart * kMaxChannels, (m_filled - firstPart) * kMaxChannels);
+        }
+        m_snapshotRows = m_filled;
+        m_snapshotChannels = m_channelCount;
+        m_snapshotReason = m_pendingReason;
+        m_dumping = true;
+        m_dumpReady.release();
+    }
+
+    private static void writerLoop() {
+        while (true) {
+            try {
+                m_dumpReady.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                writeSnapshot();
+            } catch (RuntimeException e) {
+                System.out.println("[FlightRecorder] dump failed: " + e);
+            }
+            m_dumping = false;
+        }
+    }
+
+    private static void writeSnapshot() {
+        var fileName = "blackbox_" + m_snapshotReason + "_" + (m_dumpCount++) + ".wpilog";
+        var log = new DataLog(DataLogManager.getLogDir(), fileName);
+        var entries = new DoubleLogEntry[m_snapshotChannels];
+        var lastWritten = new long[m_snapshotChannels];
+        for (int i = 0; i < m_snapshotChannels; i++) {
+            entries[i] = new DoubleLogEntry(log, m_names[i]);
+            lastWritten[i] = Long.MIN_VALUE;
+        }
+        for (int row = 0; row < m_snapshotRows; row++) {
+            int base = row * kMaxChannels;
+            for (int i = 0; i < m_snapshotChannels; i++) {
+                long timestamp = m_snapshotTimestamps[base + i];
+                // a signal frame repeats in every row until the next one arrives
+                if (timestamp == lastWritten[i]) {
+                    continue;
+                }
+                lastWritten[i] = timestamp;
+                entries[i].append(m_snapshotSamples[base + i], timestamp);
+            }
+        }
+        log.close();
+
+        m_dumpLog.append(fileName);
+        System.out.println("[FlightRecorder] wrote " + m_snapshotRows + " samples to " + fileName);
+    }
+}
@@ -0,0 +1,89 @@
+package frc.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory latency histogram in microseconds. Values under 64 us get their own bucket, above
+ * that each power of two is split into 32 buckets, so any reported percentile is within ~3% of
+ * the true value. Values past ~260 ms land in the last bucket, but {@link #getMax()} stays exact.
+ * <p>
+ * Not thread safe; record and read from the same thread.
+ */
+public final class LatencyHistogram {
+    private static final int kLinearBuckets = 64;
+    private static final int kSubBucketBits = 5;
+    private static final int kSubBuckets = 1 << kSubBucketBits;
+    private static final int kOctaves = 12;
+    private static final int kLinearBits = 6; // log2(kLinearBuckets)
+    private static final int kBucketCount = kLinearBuckets + kOctaves * kSubBuckets;
+
+    private final long[] m_counts = new long[kBucketCount];
+    private long m_total = 0;
+    private long m_max = 0;
+
+    private static int bucketOf(long us) {
+        if (us < kLinearBuckets) {
+            return (int) Math.max(us, 0);
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(us);
+        int octave = msb - kLinearBits;
+        if (octave >= kOctaves) {
+            return kBucketCount - 1;
+        }
+        int sub = (int) ((us >> (msb - kSubBucketBits)) & (kSubBuckets - 1));
+        return kLinearBuckets + octave * kSubBuckets + sub;
+    }
+
+    /** @return the largest value that maps to the bucket */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < kLinearBuckets) {
+            return bucket;
+        }
+        int octave = (bucket - kLinearBuckets) / kSubBuckets;
+        int sub = (bucket - kLinearBuckets) % kSubBuckets;
+        int msb = octave + kLinearBits;
+        long width = 1L << (msb - kSubBucketBits);
+        return (1L << msb) + (sub + 1) * width - 1;
+    }
+
+    public void record(long us) {
+        m_counts[bucketOf(us)]++;
+        m_total++;
+        if (us > m_max) {
+            m_max = us;
+        }
+    }
+
+    /**
+     * @param fraction percentile as a fraction, e.g. 0.99
+     * @return upper bound of the bucket holding that percentile, in microseconds, or 0 if empty
+     */
+    public long getPercentile(double fraction) {
+        if (m_total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(fraction * m_total);
+        long seen = 0;
+        for (int i = 0; i < kBucketCount; i++) {
+            seen += m_counts[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), m_max);
+            }
+        }
+        return m_max;
+    }
+
+    public long getMax() {
+        return m_max;
+    }
+
+    public long getCount() {
+        return m_total;
+    }
+
+    public void reset() {
+        Arrays.fill(m_counts, 0);
+        m_total = 0;
+        m_max = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package frc.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.util.WPIUtilJNI;
+import frc.util.logging.WaltLogger;
+import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.WaltLogger.IntLogger;
+
+/**
+ * Times named sections of the robot loop (the scheduler, each subsystem's periodic, the fast and
+ * vision callbacks) into {@link LatencyHistogram}s, and publishes p50/p99/max for each under
+ * "Timing/<section>" once per {@link #kPublishPeriodUs}. The histograms are reset after each
+ * publish, so the numbers describe the last window.
+ * <p>
+ * Sections are timed from the robot loop thread only.
+ */
+public final class LoopProfiler {
+    private LoopProfiler() {
+    }
+
+    private static final long kPublishPeriodUs = 1_000_000;
+
+    /** One timed section of the loop */
+    public static final class Section {
+        private final LatencyHistogram m_histogram = new LatencyHistogram();
+        private final DoubleLogger log_p50;
+        private final DoubleLogger log_p99;
+        private final DoubleLogger log_max;
+        private final IntLogger log_count;
+        private long m_startUs = -1;
+
+        private Section(String name) {
+            log_p50 = WaltLogger.logDouble("Timing/" + name, "p50Ms");
+            log_p99 = WaltLogger.logDouble("Timing/" + name, "p99Ms");
+            log_max = WaltLogger.logDouble("Timing/" + name, "maxMs");
+            log_count = WaltLogger.logInt("Timing/" + name, "count");
+        }
+
+        public void start() {
+            m_startUs = WPIUtilJNI.now();
+        }
+
+        public void stop() {
+            if (m_startUs < 0) {
+                return;
+            }
+            m_histogram.record(WPIUtilJNI.now() - m_startUs);
+            m_startUs = -1;
+        }
+
+        private void publish() {
+            log_p50.accept(m_histogram.getPercentile(0.5) / 1000.0);
+            log_p99.accept(m_histogram.getPercentile(0.99) / 1000.0);
+            log_max.accept(m_histogram.getMax() / 1000.0);
+            log_count.accept((int) m_histogram.getCount());
+            m_histogram.reset();
+        }
+    }
+
+    private static final List<Section> m_sections = new ArrayList<>();
+    private static long m_lastPublishUs = 0;
+
+    /** Creates a section; hold on to it and call start/stop around the timed code */
+    public static synchronized Section section(String name) {
+        var section = new Section(name);
+        m_sections.add(section);
+        return section;
+    }
+
+    /** Publishes and resets every section if the publish period has passed. Call every loop. */
+    public static void periodic() {
+        long now = WPIUtilJNI.now();
+        if (now - m_lastPublishUs < kPublishPeriodUs) {
+            return;
+        }
+        m_lastPublishUs = now;
+        for (int i = 0; i < m_sections.size(); i++) {
+            m_sections.get(i).publish();
+        }
+    }
+}
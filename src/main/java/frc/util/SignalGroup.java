@@ -0,0 +1,82 @@
+package frc.util;
+
+import java.util.ArrayList;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+
+import frc.util.logging.WaltLogger;
+import frc.util.logging.WaltLogger.BooleanLogger;
+import frc.util.logging.WaltLogger.DoubleLogger;
+
+/**
+ * One subsystem's Phoenix status signals, refreshed together by a single
+ * {@link BaseStatusSignal#refreshAll} per loop instead of one JNI call per getter.
+ * <p>
+ * Keep the objects {@link #add} returns and read them with {@code getValueAsDouble()}, which only
+ * returns the cached value. Calling the device getter again ({@code m_motor.getPosition()}) hands
+ * back the same object but refreshes it, which is the per-call cost this avoids.
+ * <p>
+ * All signals in a group must be on the same CAN bus. Robot loop thread only.
+ */
+public final class SignalGroup {
+    private final ArrayList<BaseStatusSignal> m_signalList = new ArrayList<>();
+    private BaseStatusSignal[] m_signals = new BaseStatusSignal[0];
+    private boolean m_ok = true;
+
+    private final String m_name;
+    private final AsyncConsole.Channel m_errorPrint = AsyncConsole.channel(1.0);
+    private final BooleanLogger log_ok;
+    private final DoubleLogger log_maxLatency;
+
+    /** @param name - Logged under "Signals/<name>" */
+    public SignalGroup(String name) {
+        m_name = name;
+        log_ok = WaltLogger.logBoolean("Signals/" + name, "ok");
+        log_maxLatency = WaltLogger.logDouble("Signals/" + name, "maxLatencyMs");
+    }
+
+    /** Adds a signal to the group. Startup only. */
+    public <T> StatusSignal<T> add(StatusSignal<T> signal) {
+        m_signalList.add(signal);
+        m_signals = m_signalList.toArray(new BaseStatusSignal[0]);
+        return signal;
+    }
+
+    /** Refreshes every signal in the group. Call once at the top of the subsystem's periodic. */
+    public void refresh() {
+        if (m_signals.length == 0) return;
+        StatusCode status = BaseStatusSignal.refreshAll(m_signals);
+        m_ok = status.isOK();
+        if (!m_ok) {
+            m_errorPrint.print("[SIGNALS] " + m_name + " refresh failed: " + status);
+        }
+
+        double maxLatency = 0;
+        for (int i = 0; i < m_signals.length; i++) {
+            maxLatency = Math.max(maxLatency, m_signals[i].getTimestamp().getLatency());
+        }
+        log_ok.accept(m_ok);
+        log_maxLatency.accept(maxLatency * 1000);
+    }
+
+    /** @return whether the last refresh got every signal */
+    public boolean isOk() {
+        return m_ok;
+    }
+
+    /**
+     * @param value - A signal in this group, e.g. position
+     * @param slope - Its derivative, also in this group, e.g. velocity
+     * @return the value extrapolated from when the device measured it to now
+     */
+    public static double compensated(StatusSignal<Double> value, StatusSignal<Double> slope) {
+        return BaseStatusSignal.getLatencyCompensatedValue(value, slope);
+    }
+
+    /** @return when the device measured the signal's cached value, in Phoenix time seconds */
+    public static double timestamp(BaseStatusSignal signal) {
+        return signal.getTimestamp().getTime();
+    }
+}
@@ -0,0 +1,39 @@
+package frc.util.logging;
+
+/**
+ * Per-logger deduplication state for change-only logging. A sample passes if its value differs
+ * from the last one written, or if the heartbeat period has elapsed since the last write, so a
+ * reader can always reconstruct the signal by holding the previous value.
+ * <p>
+ * Meant to be driven from one producer thread. Two threads racing on the same filter can at worst
+ * write one extra sample or defer one to the next heartbeat.
+ */
+final class ChangeFilter {
+    private final long m_heartbeatUs;
+
+    private boolean m_hasLast = false;
+    private long m_lastBits;
+    private long m_lastWriteUs;
+
+    /** @param heartbeatSecs how often to rewrite an unchanged value; 0 or less disables heartbeats */
+    ChangeFilter(double heartbeatSecs) {
+        m_heartbeatUs = heartbeatSecs > 0 ? (long) (heartbeatSecs * 1e6) : Long.MAX_VALUE;
+    }
+
+    /** @return whether a sample should be written; doesn't change any state */
+    boolean passes(long bits, long nowUs) {
+        return !m_hasLast || bits != m_lastBits || nowUs - m_lastWriteUs >= m_heartbeatUs;
+    }
+
+    /** @return whether the value differs from the last one written, ignoring the heartbeat */
+    boolean changed(long bits) {
+        return !m_hasLast || bits != m_lastBits;
+    }
+
+    /** Records a sample that {@link #passes} and was actually queued, so a dropped one is retried */
+    void commit(long bits, long nowUs) {
+        m_hasLast = true;
+        m_lastBits = bits;
+        m_lastWriteUs = nowUs;
+    }
+}
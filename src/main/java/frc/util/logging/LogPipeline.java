@@ -0,0 +1,261 @@
+package frc.util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Bounded, preallocated multi-producer ring buffer that moves log samples off the robot loop.
+ * Producers ({@link WaltLogger} loggers, on any thread) claim a slot with a single CAS and never
+ * block or allocate; if the ring is full the sample is dropped and counted. A slot holds either
+ * one primitive value or up to {@link #kMaxPayloadBytes} of packed struct bytes.
+ * A single background writer drains the ring into the DataLog and NetworkTables.
+ */
+public final class LogPipeline {
+    private LogPipeline() {
+    }
+
+    /** Something the writer thread can hand a drained sample to. */
+    interface Sink {
+        /**
+         * Called on the writer thread only.
+         * @param bits raw value bits (double bits, int widened to long, or 0/1)
+         * @param timestampUs producer-side timestamp, in the DataLog time base
+         * @param publishNt whether the NT sink is currently enabled
+         */
+        void write(long bits, long timestampUs, boolean publishNt);
+    }
+
+    /** Something the writer thread can hand a drained struct payload to. */
+    interface PayloadSink {
+        /**
+         * Called on the writer thread only. The bytes are only valid for the duration of the call.
+         * @param payload buffer holding the packed bytes, starting at index 0
+         * @param length number of bytes the producer offered
+         * @param timestampUs producer-side timestamp, in the DataLog time base
+         * @param publishNt whether the NT sink is currently enabled
+         */
+        void write(byte[] payload, int length, long timestampUs, boolean publishNt);
+    }
+
+    /** Must be a power of two. 8192 slots is ~10 loops of every logger at full rate. */
+    private static final int kCapacity = 8192;
+    private static final int kMask = kCapacity - 1;
+    private static final int kMaxSinks = 1024;
+    /** Largest struct a slot can carry; Pose3d and Transform3d are 56 bytes */
+    static final int kMaxPayloadBytes = 64;
+    /** How long the writer sleeps when it finds the ring empty */
+    private static final long kIdleParkNanos = 2_000_000;
+    /** Drop counters are republished at most this often */
+    private static final long kStatsPeriodUs = 500_000;
+
+    private static final AtomicLongArray m_sequences = new AtomicLongArray(kCapacity);
+    private static final int[] m_sinkIds = new int[kCapacity];
+    private static final long[] m_bits = new long[kCapacity];
+    private static final long[] m_timestamps = new long[kCapacity];
+    /** Payload length per slot, or -1 for a primitive sample */
+    private static final int[] m_lengths = new int[kCapacity];
+    /** {@link #kMaxPayloadBytes} per slot */
+    private static final byte[] m_payloads = new byte[kCapacity * kMaxPayloadBytes];
+    /** A drained payload is copied here so its slot can be released before the sink write */
+    private static final byte[] m_writerPayload = new byte[kMaxPayloadBytes];
+
+    private static final AtomicLong m_tail = new AtomicLong();
+    /** Only touched by the writer thread */
+    private static long m_head = 0;
+
+    private static final Sink[] m_sinks = new Sink[kMaxSinks];
+    private static final PayloadSink[] m_payloadSinks = new PayloadSink[kMaxSinks];
+    private static int m_sinkCount = 0;
+
+    private static final AtomicLong m_dropped = new AtomicLong();
+    private static final AtomicLong m_written = new AtomicLong();
+
+    private static Thread m_writer;
+
+    static {
+        for (int i = 0; i < kCapacity; i++) {
+            m_sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Registers a sink and starts the writer thread if needed.
+     * @return the id producers pass to {@link #offer(int, long)}
+     */
+    static synchronized int register(Sink sink) {
+        checkSinkCount();
+        m_sinks[m_sinkCount] = sink;
+        startWriter();
+        return m_sinkCount++;
+    }
+
+    /**
+     * Registers a payload sink and starts the writer thread if needed.
+     * @param maxLength largest payload this sink will be offered, at most {@link #kMaxPayloadBytes}
+     * @return the id producers pass to {@link #offer(int, byte[], int, long)}
+     */
+    static synchronized int register(PayloadSink sink, int maxLength) {
+        if (maxLength > kMaxPayloadBytes) {
+            throw new IllegalArgumentException("LogPipeline: " + maxLength + " byte payloads are over the "
+                + kMaxPayloadBytes + " byte slot size");
+        }
+        checkSinkCount();
+        m_payloadSinks[m_sinkCount] = sink;
+        startWriter();
+        return m_sinkCount++;
+    }
+
+    private static void checkSinkCount() {
+        if (m_sinkCount >= kMaxSinks) {
+            throw new IllegalStateException("LogPipeline: too many loggers (max " + kMaxSinks + ")");
+        }
+    }
+
+    private static void startWriter() {
+        if (m_writer == null) {
+            m_writer = new Thread(LogPipeline::writerLoop, "LogPipelineWriter");
+            m_writer.setDaemon(true);
+            m_writer.setPriority(Thread.MIN_PRIORITY);
+            m_writer.start();
+        }
+    }
+
+    /**
+     * Enqueues one sample, stamped now. Wait-free in the uncontended case; under contention a
+     * producer retries its CAS at most once per competing producer. Never blocks.
+     * @return false if the ring was full and the sample was dropped
+     */
+    static boolean offer(int sinkId, long bits) {
+        return offer(sinkId, bits, WPIUtilJNI.now());
+    }
+
+    static boolean offer(int sinkId, long bits, long timestampUs) {
+        long pos = m_tail.get();
+        while (true) {
+            int idx = (int) (pos & kMask);
+            long dif = m_sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_sinkIds[idx] = sinkId;
+                    m_bits[idx] = bits;
+                    m_timestamps[idx] = timestampUs;
+                    m_lengths[idx] = -1;
+                    // publishes the slot contents to the writer
+                    m_sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = m_tail.get();
+            } else if (dif < 0) {
+                m_dropped.incrementAndGet();
+                return false;
+            } else {
+                pos = m_tail.get();
+            }
+        }
+    }
+
+    /**
+     * Enqueues a copy of {@code length} bytes of {@code payload}, same guarantees as
+     * {@link #offer(int, long, long)}. The caller can reuse its buffer as soon as this returns.
+     * @return false if the ring was full and the sample was dropped
+     */
+    static boolean offer(int sinkId, byte[] payload, int length, long timestampUs) {
+        long pos = m_tail.get();
+        while (true) {
+            int idx = (int) (pos & kMask);
+            long dif = m_sequences.get(idx) - pos;
+            if (dif == 0) {
+                if (m_tail.compareAndSet(pos, pos + 1)) {
+                    m_sinkIds[idx] = sinkId;
+                    m_timestamps[idx] = timestampUs;
+                    m_lengths[idx] = length;
+                    System.arraycopy(payload, 0, m_payloads, idx * kMaxPayloadBytes, length);
+                    m_sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = m_tail.get();
+            } else if (dif < 0) {
+                m_dropped.incrementAndGet();
+                return false;
+            } else {
+                pos = m_tail.get();
+            }
+        }
+    }
+
+    /** @return total samples dropped because the ring was full */
+    public static long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    /** @return total samples written to the sinks */
+    public static long getWrittenCount() {
+        return m_written.get();
+    }
+
+    /** Drains everything currently in the ring. Writer thread only. */
+    private static int drain(boolean publishNt) {
+        int count = 0;
+        while (true) {
+            int idx = (int) (m_head & kMask);
+            if (m_sequences.get(idx) != m_head + 1) {
+                break;
+            }
+            int sinkId = m_sinkIds[idx];
+            long bits = m_bits[idx];
+            long timestampUs = m_timestamps[idx];
+            int length = m_lengths[idx];
+            if (length >= 0) {
+                System.arraycopy(m_payloads, idx * kMaxPayloadBytes, m_writerPayload, 0, length);
+            }
+            // hand the slot back to producers before doing the (slow) sink write
+            m_sequences.set(idx, m_head + kCapacity);
+            m_head++;
+
+            if (length >= 0) {
+                m_payloadSinks[sinkId].write(m_writerPayload, length, timestampUs, publishNt);
+            } else {
+                m_sinks[sinkId].write(bits, timestampUs, publishNt);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static void writerLoop() {
+        var statsTable = NetworkTableInstance.getDefault().getTable("Robot").getSubTable("LogPipeline");
+        IntegerPublisher droppedPub = statsTable.getIntegerTopic("dropped").publish();
+        IntegerPublisher writtenPub = statsTable.getIntegerTopic("written").publish();
+        var droppedEntry = new IntegerLogEntry(DataLogManager.getLog(), "Robot/LogPipeline/dropped");
+
+        long lastDropped = -1;
+        long lastStatsUs = 0;
+        while (true) {
+            int count = drain(WaltLogger.shouldPublishNt());
+            m_written.addAndGet(count);
+
+            long now = WPIUtilJNI.now();
+            if (now - lastStatsUs >= kStatsPeriodUs) {
+                lastStatsUs = now;
+                long dropped = m_dropped.get();
+                if (dropped != lastDropped) {
+                    lastDropped = dropped;
+                    droppedPub.set(dropped);
+                    droppedEntry.append(dropped, now);
+                }
+                writtenPub.set(m_written.get());
+            }
+
+            if (count == 0) {
+                LockSupport.parkNanos(kIdleParkNanos);
+            }
+        }
+    }
+}
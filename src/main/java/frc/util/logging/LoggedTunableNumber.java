@@ -1,49 +1,135 @@
 package frc.util.logging;
 
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.util.FMSCacher;
+
+/**
+ * A number that can be tuned from the dashboard (under SmartDashboard/TunableNumbers) outside of
+ * matches. Backed by an NT listener, so nothing is polled: dashboard edits are queued as they
+ * arrive and {@link #pollChanges()} applies them once per loop. {@link #hasChanged()} then
+ * reports what changed since the previous cycle, and any {@link TunableGroup} with a changed
+ * member has its callback dispatched.
+ * <p>
+ * Once the FMS is seen, every tunable reverts to its default and dashboard edits are ignored.
+ */
 public class LoggedTunableNumber {
-    private static final String m_tableKey = "TunableNumbers";
-    
-    private String m_key;
-    private boolean m_hasDefault = false;
-    private double m_defaultVal;
-    private double m_value;
+    private static final NetworkTable m_table =
+        NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable("TunableNumbers");
+
+    /** Tunables with an edit that hasn't been applied by pollChanges() yet */
+    private static final ConcurrentLinkedQueue<LoggedTunableNumber> m_pending = new ConcurrentLinkedQueue<>();
+    /** Tunables that reported hasChanged() this cycle, to clear on the next one */
+    private static final List<LoggedTunableNumber> m_changedLastCycle = new ArrayList<>();
+    private static final List<LoggedTunableNumber> m_all = new ArrayList<>();
+    private static boolean m_fmsLocked = false;
+
+    private final DoubleEntry m_entry;
+    private final AtomicBoolean m_queued = new AtomicBoolean(false);
+    private final double m_defaultVal;
+    private volatile double m_incoming;
+    /** Written on the robot loop, read by group callbacks on the applier thread */
+    private volatile double m_value;
+    private boolean m_changed = false;
+    private TunableGroup m_group = null;
 
     public LoggedTunableNumber(String key) {
         this(key, 0.0);
     }
 
     public LoggedTunableNumber(String key, double defaultVal) {
-        m_key = m_tableKey + "/" + key;
-        setDefault(defaultVal);
-        m_value = m_defaultVal;
+        m_defaultVal = defaultVal;
+        m_value = defaultVal;
+        m_incoming = defaultVal;
+        m_entry = m_table.getDoubleTopic(key).getEntry(defaultVal);
+        m_entry.setDefault(defaultVal);
+        NetworkTableInstance.getDefault().addListener(
+            m_entry, EnumSet.of(NetworkTableEvent.Kind.kValueAll), this::onNtChange);
+        synchronized (m_all) {
+            m_all.add(this);
+        }
     }
 
-    public void setDefault(double defaultVal) {
-        if (!m_hasDefault) {
-            m_hasDefault = true;
-            m_defaultVal = defaultVal;
-        }
-        if (!DriverStation.isFMSAttached()) {
-            SmartDashboard.putNumber(m_key, SmartDashboard.getNumber(m_key, m_defaultVal));
+    /** Runs on the NT listener thread */
+    private void onNtChange(NetworkTableEvent event) {
+        m_incoming = event.valueData.value.getDouble();
+        if (!m_queued.getAndSet(true)) {
+            m_pending.add(this);
         }
     }
 
+    void setGroup(TunableGroup group) {
+        m_group = group;
+    }
+
+    public double getDefault() {
+        return m_defaultVal;
+    }
+
+    /** @return the value as of the last {@link #pollChanges()} */
     public double get() {
-        if (!m_hasDefault) {
-            return 0.0;
-        }
+        return m_value;
+    }
+
+    /** @return whether the value changed in the last {@link #pollChanges()} */
+    public boolean hasChanged() {
+        return m_changed;
+    }
 
-        if (DriverStation.isFMSAttached()) {
-            return m_defaultVal;
+    private void apply(double value, List<TunableGroup> changedGroups) {
+        if (value == m_value) {
+            return;
+        }
+        m_value = value;
+        m_changed = true;
+        m_changedLastCycle.add(this);
+        if (m_group != null && !changedGroups.contains(m_group)) {
+            changedGroups.add(m_group);
         }
-        
-        return m_value;
     }
 
-    public void periodic() {
-        m_value = SmartDashboard.getNumber(m_key, m_defaultVal);
+    /**
+     * Applies queued dashboard edits and dispatches group callbacks. Call once per loop, from the
+     * robot loop thread, before anything reads tunables. Costs a queue peek when nothing changed.
+     */
+    public static void pollChanges() {
+        if (!m_changedLastCycle.isEmpty()) {
+            for (int i = 0; i < m_changedLastCycle.size(); i++) {
+                m_changedLastCycle.get(i).m_changed = false;
+            }
+            m_changedLastCycle.clear();
+        }
+
+        if (!m_fmsLocked && FMSCacher.getCachedFMSAttached()) {
+            m_fmsLocked = true;
+            var changedGroups = new ArrayList<TunableGroup>();
+            synchronized (m_all) {
+                for (var tunable : m_all) {
+                    tunable.apply(tunable.m_defaultVal, changedGroups);
+                }
+            }
+            changedGroups.forEach(TunableGroup::dispatch);
+        }
+
+        if (m_pending.isEmpty()) {
+            return;
+        }
+        var changedGroups = new ArrayList<TunableGroup>();
+        LoggedTunableNumber tunable;
+        while ((tunable = m_pending.poll()) != null) {
+            tunable.m_queued.set(false);
+            if (!m_fmsLocked) {
+                tunable.apply(tunable.m_incoming, changedGroups);
+            }
+        }
+        changedGroups.forEach(TunableGroup::dispatch);
     }
 }
@@ -0,0 +1,150 @@
+package frc.util.logging;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringEntry;
+import frc.util.AsyncConsole;
+
+/**
+ * Knows every {@link WaltLogger} logger and groups them by the first segment of their sub-table
+ * ("Aim", "Shooter", "Swerve", "Sensors", ...). Each group has a {@link LogLevel} that decimates
+ * all of its loggers, changeable at runtime from NT at {@code /Robot/LogConfig/<group>}.
+ */
+public final class LoggerRegistry {
+    private LoggerRegistry() {
+    }
+
+    public enum LogLevel {
+        /** Nothing from the group is logged */
+        OFF(-1),
+        /** At most 10 Hz per logger */
+        LOW(100_000),
+        /** At most 50 Hz per logger */
+        NORMAL(20_000),
+        /** Every sample is logged */
+        FULL(0);
+
+        /** Minimum time between samples of one logger, or -1 for off */
+        public final long minPeriodUs;
+
+        private LogLevel(long minPeriodUs) {
+            this.minPeriodUs = minPeriodUs;
+        }
+    }
+
+    /** A named group of loggers sharing one level */
+    public static final class LogGroup {
+        public final String name;
+        private final StringEntry m_ntLevel;
+        private volatile LogLevel m_level = LogLevel.FULL;
+        private final List<String> m_loggerNames = new ArrayList<>();
+
+        private LogGroup(String name) {
+            this.name = name;
+            m_ntLevel = configTable.getStringTopic(name).getEntry(LogLevel.FULL.name());
+            m_ntLevel.setDefault(LogLevel.FULL.name());
+            inst.addListener(m_ntLevel, EnumSet.of(NetworkTableEvent.Kind.kValueAll), this::onNtChange);
+        }
+
+        private void onNtChange(NetworkTableEvent event) {
+            var value = event.valueData.value.getString();
+            for (var level : LogLevel.values()) {
+                if (level.name().equalsIgnoreCase(value)) {
+                    m_level = level;
+                    return;
+                }
+            }
+            AsyncConsole.print("[LOG] ignoring unknown level '" + value + "' for group " + name);
+        }
+
+        public LogLevel getLevel() {
+            return m_level;
+        }
+
+        public void setLevel(LogLevel level) {
+            m_level = level;
+            m_ntLevel.set(level.name());
+        }
+
+        public synchronized List<String> getLoggerNames() {
+            return List.copyOf(m_loggerNames);
+        }
+    }
+
+    /** Per-logger handle that applies its group's decimation */
+    public static final class Entry {
+        public final LogGroup group;
+        private long m_lastAdmitUs = Long.MIN_VALUE / 2;
+
+        private Entry(LogGroup group) {
+            this.group = group;
+        }
+
+        /**
+         * @param nowUs current time in the DataLog time base
+         * @return whether a sample taken now should be logged
+         */
+        boolean admit(long nowUs) {
+            return admit(nowUs, false);
+        }
+
+        /**
+         * @param nowUs current time in the DataLog time base
+         * @param changed whether a change-only logger saw a new value, which skips decimation so
+         *     the edge isn't lost; an OFF group still drops it
+         * @return whether a sample taken now should be logged
+         */
+        boolean admit(long nowUs, boolean changed) {
+            long minPeriod = group.m_level.minPeriodUs;
+            if (minPeriod < 0 || (!changed && nowUs - m_lastAdmitUs < minPeriod)) {
+                return false;
+            }
+            m_lastAdmitUs = nowUs;
+            return true;
+        }
+    }
+
+    private static final NetworkTableInstance inst = NetworkTableInstance.getDefault();
+    private static final NetworkTable configTable = inst.getTable("Robot").getSubTable("LogConfig");
+    private static final Map<String, LogGroup> m_groups = new HashMap<>();
+    private static int m_loggerCount = 0;
+
+    /** Group name for a logger sub-table, e.g. "Aim/Sim" belongs to "Aim" */
+    private static String groupName(String subTable) {
+        int slash = subTable.indexOf('/');
+        return slash < 0 ? subTable : subTable.substring(0, slash);
+    }
+
+    static synchronized Entry register(String subTable, String name) {
+        var group = getGroup(groupName(subTable));
+        synchronized (group) {
+            group.m_loggerNames.add(subTable + "/" + name);
+        }
+        m_loggerCount++;
+        return new Entry(group);
+    }
+
+    /** Gets (creating if needed) the group with the given name */
+    public static synchronized LogGroup getGroup(String name) {
+        return m_groups.computeIfAbsent(name, LogGroup::new);
+    }
+
+    public static void setLevel(String group, LogLevel level) {
+        getGroup(group).setLevel(level);
+    }
+
+    public static synchronized List<LogGroup> getGroups() {
+        return List.copyOf(m_groups.values());
+    }
+
+    public static synchronized int getLoggerCount() {
+        return m_loggerCount;
+    }
+}
@@ -0,0 +1,58 @@
+package frc.util.logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * A set of {@link LoggedTunableNumber}s that are applied together, e.g. one slot of PID gains.
+ * When any member changes, the callback runs once on a shared background thread with all the
+ * members' current values, so slow work like a TalonFX config apply stays off the robot loop
+ * and a gain set is never pushed half-updated.
+ */
+public class TunableGroup {
+    private static final ExecutorService m_executor = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "TunableGroupApplier");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final String m_name;
+    private final List<LoggedTunableNumber> m_members = new ArrayList<>();
+    private final Consumer<TunableGroup> m_onChange;
+
+    /**
+     * @param name - Prefix for member keys, e.g. "Aim/Slot0"
+     * @param onChange - Runs on the applier thread after any member changes
+     */
+    public TunableGroup(String name, Consumer<TunableGroup> onChange) {
+        m_name = name;
+        m_onChange = onChange;
+    }
+
+    /** Adds a member with the key "name/key" */
+    public LoggedTunableNumber add(String key, double defaultVal) {
+        var tunable = new LoggedTunableNumber(m_name + "/" + key, defaultVal);
+        tunable.setGroup(this);
+        m_members.add(tunable);
+        return tunable;
+    }
+
+    public List<LoggedTunableNumber> getMembers() {
+        return Collections.unmodifiableList(m_members);
+    }
+
+    void dispatch() {
+        m_executor.execute(() -> {
+            try {
+                m_onChange.accept(this);
+            } catch (RuntimeException e) {
+                System.out.println("[TUNABLE] " + m_name + " apply failed: " + e);
+            }
+        });
+    }
+}
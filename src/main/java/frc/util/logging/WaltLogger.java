@@ -1,17 +1,22 @@
 package frc.util.logging;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
-import edu.wpi.first.math.geometry.struct.*;
 import edu.wpi.first.networktables.*;
+import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.util.datalog.*;
+import edu.wpi.first.util.function.BooleanConsumer;
+import edu.wpi.first.util.struct.Struct;
 import edu.wpi.first.wpilibj.DataLogManager;
 import frc.util.FMSCacher;
 import frc.robot.Constants;
@@ -23,31 +28,105 @@ public class WaltLogger {
     private static final NetworkTableInstance inst = NetworkTableInstance.getDefault();
     private static final NetworkTable logTable = inst.getTable("Robot");
 
-    private static boolean shouldPublishNt() {
+    /** Heartbeat used by change-only loggers that don't need a specific one */
+    public static final double kDefaultHeartbeatSecs = 1.0;
+
+    static boolean shouldPublishNt() {
         return Constants.kDebugLoggingEnabled && !FMSCacher.getCachedFMSAttached();
     }
 
+    /**
+     * Shared accept path of the primitive loggers. The change filter runs first so a new value on
+     * a change-only logger gets past its group's decimation.
+     */
+    private static void offer(LoggerRegistry.Entry registryEntry, ChangeFilter changeFilter, int pipelineId, long bits) {
+        long now = WPIUtilJNI.now();
+        boolean changed = false;
+        if (changeFilter != null) {
+            if (!changeFilter.passes(bits, now)) {
+                return;
+            }
+            changed = changeFilter.changed(bits);
+        }
+        if (!registryEntry.admit(now, changed)) {
+            return;
+        }
+        if (LogPipeline.offer(pipelineId, bits, now) && changeFilter != null) {
+            changeFilter.commit(bits, now);
+        }
+    }
+
     public static IntLogger logInt(String table, String name, PubSubOption... options) {
         return new IntLogger(table, name, options);
     }
 
-    public static final class Pose2dLogger implements Consumer<Pose2d> {
-        public final StructPublisher<Pose2d> ntPub;
-        public final StructLogEntry<Pose2d> logEntry;
+    /**
+     * Base for the geometry loggers. Values are packed straight into one reused little-endian
+     * buffer in the WPILib struct layout and queued as raw struct bytes via {@link LogPipeline},
+     * so the raw-double overloads log without building any geometry objects. Not safe to share
+     * across threads.
+     */
+    public static abstract class StructLogger {
+        public final RawPublisher ntPub;
+        public final RawLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
+        private final byte[] m_bytes;
+        private final ByteBuffer m_buf;
+        private final int m_pipelineId;
+        private long m_nowUs;
+
+        protected StructLogger(String subTable, String name, Struct<?> struct, PubSubOption... options) {
+            inst.addSchema(struct);
+            DataLogManager.getLog().addSchema(struct);
+            ntPub = logTable.getSubTable(subTable).getRawTopic(name).publish(struct.getTypeString(), options);
+            logEntry = new RawLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, "", struct.getTypeString());
+            m_registryEntry = LoggerRegistry.register(subTable, name);
+            m_bytes = new byte[struct.getSize()];
+            m_buf = ByteBuffer.wrap(m_bytes).order(ByteOrder.LITTLE_ENDIAN);
+            m_pipelineId = LogPipeline.register(this::write, m_bytes.length);
+        }
+
+        /** @return the cleared buffer to pack into, or null if this sample is decimated away */
+        protected final ByteBuffer begin() {
+            long now = WPIUtilJNI.now();
+            if (!m_registryEntry.admit(now)) {
+                return null;
+            }
+            m_nowUs = now;
+            m_buf.clear();
+            return m_buf;
+        }
 
+        /** Queues the packed buffer */
+        protected final void commit() {
+            LogPipeline.offer(m_pipelineId, m_bytes, m_bytes.length, m_nowUs);
+        }
+
+        private void write(byte[] payload, int length, long timestampUs, boolean publishNt) {
+            if (publishNt) {
+                ntPub.set(payload, 0, length, timestampUs);
+            }
+            logEntry.append(payload, 0, length, timestampUs);
+        }
+    }
+
+    public static final class Pose2dLogger extends StructLogger implements Consumer<Pose2d> {
         public Pose2dLogger(String subTable, String name, PubSubOption... options) {
-            StructTopic<Pose2d> topic = logTable.getSubTable(subTable).getStructTopic(name, new Pose2dStruct());
-            ntPub = topic.publish(options);
-            logEntry = StructLogEntry.create(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, new Pose2dStruct());
+            super(subTable, name, Pose2d.struct, options);
         }
 
         @Override
         public void accept(Pose2d value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+            accept(value.getX(), value.getY(), value.getRotation().getRadians());
+        }
+
+        public void accept(double x, double y, double thetaRads) {
+            var buf = begin();
+            if (buf == null) {
+                return;
             }
+            buf.putDouble(x).putDouble(y).putDouble(thetaRads);
+            commit();
         }
     }
 
@@ -55,27 +134,36 @@ public class WaltLogger {
         return new Pose2dLogger(table, name, options);
     }
 
-    public static final class Pose3dLogger implements Consumer<Pose3d> {
-        public final StructPublisher<Pose3d> ntPub;
-        public final StructLogEntry<Pose3d> logEntry;
-
+    public static final class Pose3dLogger extends StructLogger implements Consumer<Pose3d> {
         public Pose3dLogger(String subTable, String name, PubSubOption... options) {
-            StructTopic<Pose3d> topic = logTable.getSubTable(subTable).getStructTopic(name, new Pose3dStruct());
-            ntPub = topic.publish(options);
-            logEntry = StructLogEntry.create(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, new Pose3dStruct());
+            super(subTable, name, Pose3d.struct, options);
         }
 
         @Override
         public void accept(Pose3d value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
-            }
+            var q = value.getRotation().getQuaternion();
+            accept(value.getX(), value.getY(), value.getZ(), q.getW(), q.getX(), q.getY(), q.getZ());
         }
 
+        /** Logs a position with no rotation */
         public void accept(Translation3d value) {
-            accept(new Pose3d(value.getX(), value.getY(), value.getZ(), new Rotation3d()));
+            accept(value.getX(), value.getY(), value.getZ());
+        }
+
+        /** Logs a position with no rotation */
+        public void accept(double x, double y, double z) {
+            accept(x, y, z, 1, 0, 0, 0);
+        }
+
+        /** Logs a pose given its rotation as a quaternion */
+        public void accept(double x, double y, double z, double qw, double qx, double qy, double qz) {
+            var buf = begin();
+            if (buf == null) {
+                return;
+            }
+            buf.putDouble(x).putDouble(y).putDouble(z)
+                .putDouble(qw).putDouble(qx).putDouble(qy).putDouble(qz);
+            commit();
         }
     }
 
@@ -83,23 +171,26 @@ public class WaltLogger {
         return new Pose3dLogger(name, table, options);
     }
 
-    public static final class Transform3dLogger implements Consumer<Transform3d> {
-        public final StructPublisher<Transform3d> ntPub;
-        public final StructLogEntry<Transform3d> logEntry;
-
+    public static final class Transform3dLogger extends StructLogger implements Consumer<Transform3d> {
         public Transform3dLogger(String subTable, String name, PubSubOption... options) {
-            StructTopic<Transform3d> topic = logTable.getSubTable(subTable).getStructTopic(name, new Transform3dStruct());
-            ntPub = topic.publish(options);
-            logEntry = StructLogEntry.create(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, new Transform3dStruct());
+            super(subTable, name, Transform3d.struct, options);
         }
 
         @Override
         public void accept(Transform3d value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+            var q = value.getRotation().getQuaternion();
+            accept(value.getX(), value.getY(), value.getZ(), q.getW(), q.getX(), q.getY(), q.getZ());
+        }
+
+        /** Logs a transform given its rotation as a quaternion */
+        public void accept(double x, double y, double z, double qw, double qx, double qy, double qz) {
+            var buf = begin();
+            if (buf == null) {
+                return;
             }
+            buf.putDouble(x).putDouble(y).putDouble(z)
+                .putDouble(qw).putDouble(qx).putDouble(qy).putDouble(qz);
+            commit();
         }
     }
 
@@ -107,23 +198,23 @@ public class WaltLogger {
         return new Transform3dLogger(table, name, options);
     }
 
-    public static final class Translation3dLogger implements Consumer<Translation3d> {
-        public final StructPublisher<Translation3d> ntPub;
-        public final StructLogEntry<Translation3d> logEntry;
-
+    public static final class Translation3dLogger extends StructLogger implements Consumer<Translation3d> {
         public Translation3dLogger(String subTable, String name, PubSubOption... options) {
-            StructTopic<Translation3d> topic = logTable.getSubTable(subTable).getStructTopic(name, new Translation3dStruct());
-            ntPub = topic.publish(options);
-            logEntry = StructLogEntry.create(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, new Translation3dStruct());
+            super(subTable, name, Translation3d.struct, options);
         }
 
         @Override
         public void accept(Translation3d value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+            accept(value.getX(), value.getY(), value.getZ());
+        }
+
+        public void accept(double x, double y, double z) {
+            var buf = begin();
+            if (buf == null) {
+                return;
             }
+            buf.putDouble(x).putDouble(y).putDouble(z);
+            commit();
         }
     }
 
@@ -131,23 +222,23 @@ public class WaltLogger {
         return new Translation3dLogger(table, name, options);
     }
 
-    public static final class Translation2dLogger implements Consumer<Translation2d> {
-        public final StructPublisher<Translation2d> ntPub;
-        public final StructLogEntry<Translation2d> logEntry;
-
+    public static final class Translation2dLogger extends StructLogger implements Consumer<Translation2d> {
         public Translation2dLogger(String subTable, String name, PubSubOption... options) {
-            StructTopic<Translation2d> topic = logTable.getSubTable(subTable).getStructTopic(name, new Translation2dStruct());
-            ntPub = topic.publish(options);
-            logEntry = StructLogEntry.create(DataLogManager.getLog(), "Robot/" + subTable + "/" + name, new Translation2dStruct());
+            super(subTable, name, Translation2d.struct, options);
         }
 
         @Override
         public void accept(Translation2d value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+            accept(value.getX(), value.getY());
+        }
+
+        public void accept(double x, double y) {
+            var buf = begin();
+            if (buf == null) {
+                return;
             }
+            buf.putDouble(x).putDouble(y);
+            commit();
         }
     }
 
@@ -155,41 +246,84 @@ public class WaltLogger {
         return new Translation2dLogger(table, name, options);
     }
 
-    public static final class IntLogger implements Consumer<Integer> {
+    /** Primitive int logger; {@link #accept(int)} never boxes and is queued via {@link LogPipeline}. */
+    public static final class IntLogger implements IntConsumer {
         public final IntegerPublisher ntPub;
         public final IntegerLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
+        private final int m_pipelineId;
+        private ChangeFilter m_changeFilter = null;
 
         public IntLogger(String subTable, String name, PubSubOption... options) {
             ntPub = NTPublisherFactory.makeIntPub(logTable.getSubTable(subTable), name, options);
             logEntry = new IntegerLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name);
+            m_registryEntry = LoggerRegistry.register(subTable, name);
+            m_pipelineId = LogPipeline.register(this::write);
         }
 
         @Override
-        public void accept(Integer value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+        public void accept(int value) {
+            long bits = value;
+            offer(m_registryEntry, m_changeFilter, m_pipelineId, bits);
+        }
+
+        /**
+         * Only record samples whose value changed, each stamped with the time it was observed.
+         * A new value is logged even if the group's level would have decimated it.
+         * @param heartbeatSecs period at which an unchanged value is rewritten anyway; 0 disables
+         * @return this logger, for chaining off the factory
+         */
+        public IntLogger withChangesOnly(double heartbeatSecs) {
+            m_changeFilter = new ChangeFilter(heartbeatSecs);
+            return this;
+        }
+
+        private void write(long bits, long timestampUs, boolean publishNt) {
+            if (publishNt) {
+                ntPub.set(bits, timestampUs);
             }
+            logEntry.append(bits, timestampUs);
         }
     }
 
-    public static final class DoubleLogger implements Consumer<Double> {
+    /** Primitive double logger; {@link #accept(double)} never boxes and is queued via {@link LogPipeline}. */
+    public static final class DoubleLogger implements DoubleConsumer {
         public final DoublePublisher ntPub;
         public final DoubleLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
+        private final int m_pipelineId;
+        private ChangeFilter m_changeFilter = null;
 
         public DoubleLogger(String subTable, String name, PubSubOption... options) {
             ntPub = NTPublisherFactory.makeDoublePub(logTable.getSubTable(subTable), name, options);
             logEntry = new DoubleLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name);
+            m_registryEntry = LoggerRegistry.register(subTable, name);
+            m_pipelineId = LogPipeline.register(this::write);
         }
 
         @Override
-        public void accept(Double value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
+        public void accept(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            offer(m_registryEntry, m_changeFilter, m_pipelineId, bits);
+        }
+
+        /**
+         * Only record samples whose value changed, each stamped with the time it was observed.
+         * A new value is logged even if the group's level would have decimated it.
+         * @param heartbeatSecs period at which an unchanged value is rewritten anyway; 0 disables
+         * @return this logger, for chaining off the factory
+         */
+        public DoubleLogger withChangesOnly(double heartbeatSecs) {
+            m_changeFilter = new ChangeFilter(heartbeatSecs);
+            return this;
+        }
+
+        private void write(long bits, long timestampUs, boolean publishNt) {
+            double value = Double.longBitsToDouble(bits);
+            if (publishNt) {
+                ntPub.set(value, timestampUs);
             }
+            logEntry.append(value, timestampUs);
         }
     }
 
@@ -197,44 +331,72 @@ public class WaltLogger {
         return new DoubleLogger(table, name, options);
     }
 
-    public static final class BooleanLogger implements Consumer<Boolean> {
+    /** Primitive boolean logger; {@link #accept(boolean)} never boxes and is queued via {@link LogPipeline}. */
+    public static final class BooleanLogger implements BooleanConsumer {
         public final BooleanPublisher ntPub;
         public final BooleanLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
+        private final int m_pipelineId;
+        private ChangeFilter m_changeFilter = null;
 
         public BooleanLogger(String subTable, String name, PubSubOption... options) {
             ntPub = NTPublisherFactory.makeBoolPub(logTable.getSubTable(subTable), name, options);
             logEntry = new BooleanLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name);
+            m_registryEntry = LoggerRegistry.register(subTable, name);
+            m_pipelineId = LogPipeline.register(this::write);
         }
 
         @Override
-        public void accept(Boolean value) {
-            if (shouldPublishNt()) {
-                ntPub.set(value);
-            } else {
-                logEntry.append(value);
-            }
+        public void accept(boolean value) {
+            long bits = value ? 1 : 0;
+            offer(m_registryEntry, m_changeFilter, m_pipelineId, bits);
+        }
+
+        /**
+         * Only record samples whose value changed, each stamped with the time it was observed.
+         * A new value is logged even if the group's level would have decimated it.
+         * @param heartbeatSecs period at which an unchanged value is rewritten anyway; 0 disables
+         * @return this logger, for chaining off the factory
+         */
+        public BooleanLogger withChangesOnly(double heartbeatSecs) {
+            m_changeFilter = new ChangeFilter(heartbeatSecs);
+            return this;
         }
 
         public void accept(BooleanSupplier valueSup) {
             accept(valueSup.getAsBoolean());
         }
+
+        private void write(long bits, long timestampUs, boolean publishNt) {
+            boolean value = bits != 0;
+            if (publishNt) {
+                ntPub.set(value, timestampUs);
+            }
+            logEntry.append(value, timestampUs);
+        }
     }
 
     public static BooleanLogger logBoolean(String table, String name, PubSubOption... options) {
         return new BooleanLogger(table, name, options);
     }
 
+    /** Writes inline on the caller's thread; arrays vary in length, so they don't fit a pipeline slot. */
     public static final class DoubleArrayLogger implements Consumer<double[]> {
         public final DoubleArrayPublisher ntPub;
         public final DoubleArrayLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
 
         public DoubleArrayLogger(String subTable, String name) {
             ntPub = NTPublisherFactory.makeDoubleArrPub(logTable.getSubTable(subTable), name);
             logEntry = new DoubleArrayLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name);
+            m_registryEntry = LoggerRegistry.register(subTable, name);
         }
 
         @Override
         public void accept(double[] value) {
+            if (!m_registryEntry.admit(WPIUtilJNI.now())) {
+                return;
+            }
             if (shouldPublishNt()) {
                 ntPub.accept(value);
             } else {
@@ -247,17 +409,23 @@ public class WaltLogger {
         return new DoubleArrayLogger(table, name);
     }
 
+    /** Writes inline on the caller's thread, like {@link DoubleArrayLogger}. */
     public static final class StringLogger implements Consumer<String> {
         public final StringPublisher ntPub;
         public final StringLogEntry logEntry;
+        private final LoggerRegistry.Entry m_registryEntry;
 
         public StringLogger(String subTable, String name) {
             ntPub = NTPublisherFactory.makeStringPub(logTable.getSubTable(subTable), name);
             logEntry = new StringLogEntry(DataLogManager.getLog(), "Robot/" + subTable + "/" + name);
+            m_registryEntry = LoggerRegistry.register(subTable, name);
         }
 
         @Override
         public void accept(String value) {
+            if (!m_registryEntry.admit(WPIUtilJNI.now())) {
+                return;
+            }
             if (shouldPublishNt()) {
                 ntPub.set(value);
             } else {
@@ -0,0 +1,103 @@
+package frc.robot.solver;
+
+/**
+ * Point-mass flight model for a note leaving the shooter: gravity, quadratic drag and a Magnus
+ * side force from the spin the left/right flywheel differential puts on it. The note flies flat,
+ * so the spin axis is vertical and the Magnus force only pushes it sideways.
+ * <p>
+ * Frame: x is horizontal toward the target, y is horizontal to the left, z is up. Stateless, so
+ * any number of solver threads can share one instance.
+ */
+public final class NoteFlight {
+    private static final double kGravity = 9.81;
+    private static final double kAirDensity = 1.2; // kg/m^3
+
+    /* note, from the 2024 game manual: 14 in outer diameter, 2 in thick */
+    private static final double kNoteMass = 0.235; // kg
+    private static final double kNoteRadius = 0.1778; // m
+    private static final double kNoteThickness = 0.0508; // m
+    /** Edge-on area the note presents to the air while flying flat */
+    private static final double kNoteArea = 2 * kNoteRadius * kNoteThickness;
+    private static final double kDragCoefficient = 1.1;
+    /** Side-force coefficient per unit of spin ratio (rim speed over airspeed) */
+    private static final double kMagnusCoefficient = 0.25;
+
+    /* shooter */
+    private static final double kWheelDiameter = 0.1016; // 4 in, m
+    /** How much of the average wheel surface speed makes it into the note */
+    private static final double kExitEfficiency = 0.5;
+
+    private static final double kDt = 0.002;
+    private static final double kMaxFlightSecs = 2.0;
+
+    /** Where a trajectory crossed the target plane, or didn't */
+    public static final record Crossing (boolean reached, double z, double y, double timeSecs, double vz) {}
+
+    /** @return exit speed of the note, in m/s */
+    public double exitSpeed(double leftRpm, double rightRpm) {
+        double surface = (leftRpm + rightRpm) / 2 / 60 * Math.PI * kWheelDiameter;
+        return surface * kExitEfficiency;
+    }
+
+    /** @return note spin in rad/s, positive counterclockwise seen from above */
+    public double spin(double leftRpm, double rightRpm) {
+        double diff = (rightRpm - leftRpm) / 60 * Math.PI * kWheelDiameter;
+        // the note rolls between the two wheels, so it spins at half their surface speed difference
+        return diff / 2 / kNoteRadius;
+    }
+
+    /**
+     * Flies a note until it crosses the vertical plane at {@code targetX}.
+     * @param x0 launch point, toward the target
+     * @param z0 launch height
+     * @param elevationRads launch angle above horizontal
+     * @param speed exit speed, m/s
+     * @param spinRadPerSec from {@link #spin(double, double)}
+     */
+    public Crossing fly(double x0, double z0, double elevationRads, double speed, double spinRadPerSec, double targetX) {
+        double x = x0;
+        double y = 0;
+        double z = z0;
+        double vx = speed * Math.cos(elevationRads);
+        double vy = 0;
+        double vz = speed * Math.sin(elevationRads);
+        double dragK = 0.5 * kAirDensity * kDragCoefficient * kNoteArea / kNoteMass;
+        double magnusK = 0.5 * kAirDensity * kMagnusCoefficient * kNoteArea / kNoteMass;
+
+        for (double t = 0; t < kMaxFlightSecs; t += kDt) {
+            double v = Math.sqrt(vx * vx + vy * vy + vz * vz);
+            double ax = -dragK * v * vx;
+            double ay = -dragK * v * vy;
+            double az = -dragK * v * vz - kGravity;
+            if (v > 1e-6) {
+                // F = k * (rim speed / v) * v^2, perpendicular to v in the horizontal plane
+                double side = magnusK * spinRadPerSec * kNoteRadius * v;
+                double horiz = Math.hypot(vx, vy);
+                if (horiz > 1e-6) {
+                    ax += -side * vy / horiz;
+                    ay += side * vx / horiz;
+                }
+            }
+
+            // semi-implicit Euler
+            vx += ax * kDt;
+            vy += ay * kDt;
+            vz += az * kDt;
+            double nx = x + vx * kDt;
+            double ny = y + vy * kDt;
+            double nz = z + vz * kDt;
+
+            if (nx >= targetX) {
+                double frac = (targetX - x) / (nx - x);
+                return new Crossing(true, z + (nz - z) * frac, y + (ny - y) * frac, t + kDt * frac, vz);
+            }
+            if (nz < 0 || vx <= 0) {
+                break;
+            }
+            x = nx;
+            y = ny;
+            z = nz;
+        }
+        return new Crossing(false, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+    }
+}
@@ -0,0 +1,157 @@
+package frc.robot.solver;
+
+import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.Radians;
+import static frc.robot.Constants.AimK.kAmpAngle;
+import static frc.robot.Constants.AimK.kLaunchOffset;
+import static frc.robot.Constants.AimK.kLength;
+import static frc.robot.Constants.AimK.kMinAngle;
+import static frc.robot.Constants.AimK.kOriginToPivot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.FieldK.SpeakerK;
+import frc.robot.subsystems.shooter.Aim;
+
+/**
+ * Finds the aim angle and flywheel speed that put a note through the speaker opening from a given
+ * robot position, using the same aim point and pivot geometry the robot uses.
+ * <p>
+ * For each position it finds the lowest left RPM that can reach the aim point at all, adds
+ * {@link #kRpmMargin} so the shot isn't right at the edge, and then solves for the low-arc aim
+ * angle at that RPM. Thread-safe; the solver main runs it on every core at once.
+ */
+public final class ShotSolver {
+    public static final double kMinRpm = 3000;
+    public static final double kMaxRpm = 8500;
+    public static final double kRpmMargin = 1.1;
+
+    private static final double kAimMinRads = kMinAngle.in(Radians);
+    private static final double kAimMaxRads = kAmpAngle.in(Radians);
+    private static final double kAimScanStepRads = Math.toRadians(2);
+    private static final int kAimBisections = 20;
+    private static final int kRpmBisections = 12;
+    /** How close the note has to pass to the aim point to count as a hit */
+    private static final double kHeightTolerance = 0.01;
+    private static final double kLaunchOffsetRads = kLaunchOffset.in(Radians);
+
+    /**
+     * @param aimRads aim angle, what Aim is commanded to, not the launch angle
+     * @param lateralDriftMeters sideways curve from spin by the time the note reaches the speaker
+     */
+    public static final record Solution (
+        boolean feasible, double aimRads, double leftRpm, double spinRatio,
+        double timeOfFlightSecs, double lateralDriftMeters) {}
+
+    private static final Solution kInfeasible = new Solution(false, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
+    private final NoteFlight m_flight = new NoteFlight();
+    private final double m_spinRatio;
+
+    /** @param spinRatio right flywheel RPM over left */
+    public ShotSolver(double spinRatio) {
+        m_spinRatio = spinRatio;
+    }
+
+    /** Shot geometry for one robot position, flattened to the vertical plane through the aim point */
+    private static final record Geometry (double run, double pivotZ, double targetZ) {}
+
+    /** Blue alliance, robot's back to the speaker like the heading controller leaves it */
+    private static Geometry geometry(double robotX, double robotY) {
+        var speaker = SpeakerK.kBlueCenterOpening;
+        double heading = Math.atan2(speaker.getY() - robotY, speaker.getX() - robotX) + Math.PI;
+        var pose = new Pose3d(new Pose2d(robotX, robotY, new Rotation2d(heading)));
+        var pivot = pose.transformBy(kOriginToPivot).getTranslation();
+        var aimPoint = Aim.speakerAimPoint(pose, false);
+        double run = Math.hypot(aimPoint.getX() - pivot.getX(), aimPoint.getY() - pivot.getY());
+        return new Geometry(run, pivot.getZ(), aimPoint.getZ());
+    }
+
+    /** @return the shot from a robot centered at this distance straight out from the speaker opening */
+    public Solution solveForRange(double rangeMeters) {
+        var speaker = SpeakerK.kBlueCenterOpening;
+        return solveAt(speaker.getX() + rangeMeters, speaker.getY());
+    }
+
+    /** @return the shot from a robot centered at this blue-origin field position */
+    public Solution solveAt(double robotX, double robotY) {
+        var geom = geometry(robotX, robotY);
+        if (geom.run() < kLength.in(Meters) * 2) return kInfeasible;
+
+        // reach only gets better with speed, so the lowest RPM that gets up to the aim point can
+        // be bisected. Hitting it isn't monotonic: too fast and the lowest angle already flies over.
+        if (!reaches(geom, kMaxRpm)) return kInfeasible;
+        double lo = kMinRpm;
+        double hi = kMaxRpm;
+        if (reaches(geom, lo)) {
+            hi = lo;
+        } else {
+            for (int i = 0; i < kRpmBisections; i++) {
+                double mid = (lo + hi) / 2;
+                if (reaches(geom, mid)) hi = mid;
+                else lo = mid;
+            }
+        }
+
+        double rpm = Math.min(kMaxRpm, hi * kRpmMargin);
+        double aim = aimFor(geom, rpm);
+        if (Double.isNaN(aim)) return kInfeasible;
+        var crossing = fly(geom, aim, rpm);
+        return new Solution(true, aim, rpm, m_spinRatio, crossing.timeSecs(), crossing.y());
+    }
+
+    private NoteFlight.Crossing fly(Geometry geom, double aimRads, double leftRpm) {
+        double rightRpm = leftRpm * m_spinRatio;
+        double launch = aimRads + kLaunchOffsetRads;
+        // the shooter sits at the end of the arm, which points along the launch direction
+        double armLength = kLength.in(Meters);
+        double x0 = armLength * Math.cos(launch);
+        double z0 = geom.pivotZ() + armLength * Math.sin(launch);
+        return m_flight.fly(x0, z0, launch, m_flight.exitSpeed(leftRpm, rightRpm),
+            m_flight.spin(leftRpm, rightRpm), geom.run());
+    }
+
+    /** @return how far above the aim point the note passes, or NaN if it never gets there */
+    private double heightError(Geometry geom, double aimRads, double leftRpm) {
+        var crossing = fly(geom, aimRads, leftRpm);
+        return crossing.reached() ? crossing.z() - geom.targetZ() : Double.NaN;
+    }
+
+    /** @return whether some aim angle gets the note up to the aim point at this RPM */
+    private boolean reaches(Geometry geom, double leftRpm) {
+        for (double aim = kAimMinRads; aim <= kAimMaxRads; aim += kAimScanStepRads) {
+            double err = heightError(geom, aim, leftRpm);
+            if (!Double.isNaN(err) && err >= 0) return true;
+        }
+        return false;
+    }
+
+    /** @return the low-arc aim angle that hits the aim point at this RPM, or NaN if none does */
+    private double aimFor(Geometry geom, double leftRpm) {
+        // scan up from the lowest angle for the first crossing from below to above the aim point
+        double prevAim = kAimMinRads;
+        double prevErr = heightError(geom, prevAim, leftRpm);
+        if (!Double.isNaN(prevErr) && Math.abs(prevErr) < kHeightTolerance) return prevAim;
+        for (double aim = kAimMinRads + kAimScanStepRads; aim <= kAimMaxRads; aim += kAimScanStepRads) {
+            double err = heightError(geom, aim, leftRpm);
+            // falling short of the speaker counts as below it
+            if (!Double.isNaN(err) && err >= 0 && (Double.isNaN(prevErr) || prevErr < 0)) {
+                return bisectAim(geom, leftRpm, prevAim, aim);
+            }
+            prevAim = aim;
+            prevErr = err;
+        }
+        return Double.NaN;
+    }
+
+    private double bisectAim(Geometry geom, double leftRpm, double lo, double hi) {
+        for (int i = 0; i < kAimBisections; i++) {
+            double mid = (lo + hi) / 2;
+            double err = heightError(geom, mid, leftRpm);
+            if (Double.isNaN(err) || err < 0) lo = mid;
+            else hi = mid;
+        }
+        return hi;
+    }
+}
@@ -0,0 +1,166 @@
+package frc.robot.solver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import frc.robot.Constants.FieldK.SpeakerK;
+import frc.robot.Constants.ShooterK;
+import frc.robot.subsystems.shooter.ShotMap;
+
+/**
+ * Regenerates the shot map offline from {@link NoteFlight} and the robot's geometry constants,
+ * solving every position in parallel on all cores.
+ * <p>
+ * Usage: {@code ./gradlew solveShots --args="[--out shotmap.csv] [--grid grid.csv] [--step meters]"}
+ * <ul>
+ * <li>{@code --out} is the distance-keyed table {@link ShotMap} loads at boot, by default straight
+ * into {@code src/main/deploy}</li>
+ * <li>{@code --grid} also solves the whole blue half of the field, for checking how far the
+ * distance-only table is off near the speaker corners</li>
+ * <li>{@code --step} is the grid spacing, 0.1 m by default</li>
+ * </ul>
+ */
+public final class ShotSolverMain {
+    private ShotSolverMain() {
+    }
+
+    private static final double kMinRange = 1.0;
+    private static final double kMaxRange = 6.0;
+    private static final double kRangeStep = 0.1;
+    /** Grid covers this much of the blue half, robot center positions */
+    private static final double kGridMaxX = 7.0;
+    private static final double kGridMinY = 0.5;
+    private static final double kGridMaxY = 7.7;
+    /** Cells per fork/join leaf task */
+    private static final int kLeafCells = 32;
+
+    /** Solves {@code xs[i], ys[i]} into {@code out[i]} for a range of i, splitting in half until small */
+    private static final class SolveTask extends RecursiveAction {
+        private final ShotSolver m_solver;
+        private final double[] m_xs;
+        private final double[] m_ys;
+        private final ShotSolver.Solution[] m_out;
+        private final int m_from;
+        private final int m_to;
+
+        SolveTask(ShotSolver solver, double[] xs, double[] ys, ShotSolver.Solution[] out, int from, int to) {
+            m_solver = solver;
+            m_xs = xs;
+            m_ys = ys;
+            m_out = out;
+            m_from = from;
+            m_to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_to - m_from <= kLeafCells) {
+                for (int i = m_from; i < m_to; i++) {
+                    m_out[i] = m_solver.solveAt(m_xs[i], m_ys[i]);
+                }
+                return;
+            }
+            int mid = (m_from + m_to) >>> 1;
+            invokeAll(
+                new SolveTask(m_solver, m_xs, m_ys, m_out, m_from, mid),
+                new SolveTask(m_solver, m_xs, m_ys, m_out, mid, m_to));
+        }
+    }
+
+    private static ShotSolver.Solution[] solveAll(ForkJoinPool pool, ShotSolver solver, double[] xs, double[] ys) {
+        var out = new ShotSolver.Solution[xs.length];
+        pool.invoke(new SolveTask(solver, xs, ys, out, 0, xs.length));
+        return out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path outPath = Path.of("src", "main", "deploy", ShotMap.kFileName);
+        Path gridPath = null;
+        double step = 0.1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" -> outPath = Path.of(args[++i]);
+                case "--grid" -> gridPath = Path.of(args[++i]);
+                case "--step" -> step = Double.parseDouble(args[++i]);
+                default -> {
+                    System.err.println("usage: ShotSolverMain [--out shotmap.csv] [--grid grid.csv] [--step meters]");
+                    System.exit(1);
+                }
+            }
+        }
+
+        var solver = new ShotSolver(ShooterK.kVeloSpinRatio);
+        var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        var speaker = SpeakerK.kBlueCenterOpening;
+
+        long start = System.nanoTime();
+        int rows = (int) Math.round((kMaxRange - kMinRange) / kRangeStep) + 1;
+        var ranges = new double[rows];
+        var xs = new double[rows];
+        var ys = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            ranges[i] = kMinRange + i * kRangeStep;
+            xs[i] = speaker.getX() + ranges[i];
+            ys[i] = speaker.getY();
+        }
+        var table = solveAll(pool, solver, xs, ys);
+        int written = writeTable(outPath, ranges, table);
+        System.out.printf(Locale.ROOT, "[SOLVER] %d/%d distances solved in %.2f s -> %s%n",
+            written, rows, (System.nanoTime() - start) / 1e9, outPath);
+
+        if (gridPath != null) {
+            start = System.nanoTime();
+            int nx = (int) Math.floor(kGridMaxX / step);
+            int ny = (int) Math.floor((kGridMaxY - kGridMinY) / step) + 1;
+            var gridXs = new double[nx * ny];
+            var gridYs = new double[nx * ny];
+            for (int ix = 0; ix < nx; ix++) {
+                for (int iy = 0; iy < ny; iy++) {
+                    gridXs[ix * ny + iy] = step * (ix + 1);
+                    gridYs[ix * ny + iy] = kGridMinY + step * iy;
+                }
+            }
+            var grid = solveAll(pool, solver, gridXs, gridYs);
+            writeGrid(gridPath, gridXs, gridYs, grid);
+            System.out.printf(Locale.ROOT, "[SOLVER] %d grid cells solved on %d threads in %.2f s -> %s%n",
+                grid.length, pool.getParallelism(), (System.nanoTime() - start) / 1e9, gridPath);
+        }
+        pool.shutdown();
+    }
+
+    /** @return how many rows were feasible and written */
+    private static int writeTable(Path path, double[] ranges, ShotSolver.Solution[] table) throws IOException {
+        int written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("# distanceMeters,pitchDegs,leftRpm,spinRatio,flightSecs\n");
+            writer.write("# generated by frc.robot.solver.ShotSolverMain; distances with no solution are left out\n");
+            for (int i = 0; i < ranges.length; i++) {
+                var sol = table[i];
+                if (!sol.feasible()) continue;
+                writer.write(String.format(Locale.ROOT, "%.2f,%.2f,%.0f,%.2f,%.3f%n",
+                    ranges[i], Math.toDegrees(sol.aimRads()), sol.leftRpm(), sol.spinRatio(), sol.timeOfFlightSecs()));
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void writeGrid(Path path, double[] xs, double[] ys, ShotSolver.Solution[] grid) throws IOException {
+        var speaker = SpeakerK.kBlueCenterOpening;
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("x,y,rangeMeters,feasible,pitchDegs,leftRpm,timeOfFlightSecs,lateralDriftMeters\n");
+            for (int i = 0; i < grid.length; i++) {
+                var sol = grid[i];
+                double range = Math.hypot(speaker.getX() - xs[i], speaker.getY() - ys[i]);
+                writer.write(String.format(Locale.ROOT, "%.2f,%.2f,%.3f,%b,%.2f,%.0f,%.3f,%.3f%n",
+                    xs[i], ys[i], range, sol.feasible(), Math.toDegrees(sol.aimRads()), sol.leftRpm(),
+                    sol.timeOfFlightSecs(), sol.lateralDriftMeters()));
+            }
+        }
+    }
+}
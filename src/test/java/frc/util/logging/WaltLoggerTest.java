@@ -0,0 +1,138 @@
+package frc.util.logging;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.util.logging.WaltLogger.BooleanLogger;
+import frc.util.logging.WaltLogger.DoubleLogger;
+import frc.util.logging.LoggerRegistry.LogLevel;
+import frc.util.logging.WaltLogger.IntLogger;
+import frc.util.logging.WaltLogger.Pose2dLogger;
+import frc.util.logging.WaltLogger.Pose3dLogger;
+import frc.util.logging.WaltLogger.Transform3dLogger;
+import frc.util.logging.WaltLogger.Translation2dLogger;
+import frc.util.logging.WaltLogger.Translation3dLogger;
+
+/**
+ * The loggers run on the robot loop at full rate, so once warmed up their {@code accept} must not
+ * allocate, whether the sample is queued, filtered as unchanged, decimated or dropped.
+ */
+public class WaltLoggerTest {
+    private static final int kWarmupRuns = 5;
+    private static final int kIterations = 100_000;
+
+    private static final com.sun.management.ThreadMXBean kThreadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @BeforeAll
+    public static void setup() {
+        HAL.initialize(500, 0);
+        kThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static long allocatedBytes() {
+        return kThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** What reading the counter twice in a row costs, so it isn't blamed on the loggers */
+    private static long measurementOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = allocatedBytes();
+            long after = allocatedBytes();
+            overhead = Math.min(overhead, after - before);
+        }
+        return overhead;
+    }
+
+    private static void assertNoAllocation(String what, Runnable loop) {
+        // warm up so the JIT has compiled the path being measured
+        for (int i = 0; i < kWarmupRuns; i++) {
+            loop.run();
+        }
+        long overhead = measurementOverhead();
+        long before = allocatedBytes();
+        loop.run();
+        long allocated = allocatedBytes() - before - overhead;
+        assertTrue(allocated <= 0, what + " allocated " + allocated + " bytes over " + kIterations + " samples");
+    }
+
+    @Test
+    public void doubleLoggerDoesNotAllocate() {
+        DoubleLogger logger = WaltLogger.logDouble("Test", "double");
+        DoubleLogger changesOnly = WaltLogger.logDouble("Test", "doubleChanges").withChangesOnly(1.0);
+        assertNoAllocation("DoubleLogger", () -> {
+            for (int i = 0; i < kIterations; i++) {
+                logger.accept(i * 0.5);
+                changesOnly.accept((i / 8) * 0.25);
+            }
+        });
+    }
+
+    @Test
+    public void intLoggerDoesNotAllocate() {
+        IntLogger logger = WaltLogger.logInt("Test", "int");
+        IntLogger changesOnly = WaltLogger.logInt("Test", "intChanges").withChangesOnly(1.0);
+        assertNoAllocation("IntLogger", () -> {
+            for (int i = 0; i < kIterations; i++) {
+                logger.accept(i);
+                changesOnly.accept(i / 8);
+            }
+        });
+    }
+
+    @Test
+    public void booleanLoggerDoesNotAllocate() {
+        BooleanLogger logger = WaltLogger.logBoolean("Test", "boolean");
+        BooleanLogger changesOnly = WaltLogger.logBoolean("Test", "booleanChanges").withChangesOnly(1.0);
+        assertNoAllocation("BooleanLogger", () -> {
+            for (int i = 0; i < kIterations; i++) {
+                logger.accept((i & 1) == 0);
+                changesOnly.accept((i & 8) == 0);
+            }
+        });
+    }
+
+    @Test
+    public void structLoggersDoNotAllocate() {
+        Pose2dLogger pose2d = WaltLogger.logPose2d("Test", "pose2d");
+        Pose3dLogger pose3d = WaltLogger.logPose3d("Test", "pose3d");
+        Transform3dLogger transform3d = WaltLogger.logTransform3d("Test", "transform3d");
+        Translation3dLogger translation3d = WaltLogger.logTranslation3d("Test", "translation3d");
+        Translation2dLogger translation2d = WaltLogger.logTranslation2d("Test", "translation2d");
+        assertNoAllocation("StructLogger", () -> {
+            for (int i = 0; i < kIterations; i++) {
+                double v = i * 0.001;
+                pose2d.accept(v, -v, v * 0.5);
+                pose3d.accept(v, -v, 0.1, 1, 0, 0, 0);
+                pose3d.accept(v, v, v);
+                transform3d.accept(v, -v, 0.2, 1, 0, 0, 0);
+                translation3d.accept(v, -v, 0.3);
+                translation2d.accept(v, -v);
+            }
+        });
+    }
+
+    @Test
+    public void decimatedLoggersDoNotAllocate() {
+        LoggerRegistry.setLevel("TestLow", LogLevel.LOW);
+        LoggerRegistry.setLevel("TestOff", LogLevel.OFF);
+        DoubleLogger low = WaltLogger.logDouble("TestLow", "double");
+        BooleanLogger lowChanges = WaltLogger.logBoolean("TestLow", "booleanChanges").withChangesOnly(1.0);
+        Pose2dLogger lowPose = WaltLogger.logPose2d("TestLow", "pose2d");
+        IntLogger off = WaltLogger.logInt("TestOff", "int");
+        assertNoAllocation("decimated loggers", () -> {
+            for (int i = 0; i < kIterations; i++) {
+                low.accept(i * 0.5);
+                lowChanges.accept((i & 8) == 0);
+                lowPose.accept(i, -i, 0);
+                off.accept(i);
+            }
+        });
+    }
+}